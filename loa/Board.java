@@ -4,9 +4,9 @@ package loa;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import java.util.Random;
 
 import java.util.regex.Pattern;
 
@@ -21,6 +21,69 @@ class Board {
     /** Default number of moves for each side that results in a draw. */
     static final int DEFAULT_MOVE_LIMIT = 60;
 
+    /** PLACEMENT[P.ordinal()][S] is the award that the deterministic
+     *  evaluation (see MachinePlayer.evaluate) gives for a piece P on
+     *  the square with index S.  I keep each side's total up to date. */
+    static final int[][] PLACEMENT = new int[2][NUM_SQUARES];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            PLACEMENT[WP.ordinal()][sq.index()] =
+                placementValue(sq.col(), sq.row());
+            PLACEMENT[BP.ordinal()][sq.index()] =
+                placementValue(sq.row(), sq.col());
+        }
+    }
+
+    /** Return the placement award for a white piece in column OUTER and
+     *  row INNER, or for a black piece in row OUTER and column INNER.
+     *  These are the middle values of the random awards in
+     *  MachinePlayer.whitePoints and blackPoints. */
+    private static int placementValue(int outer, int inner) {
+        if (outer < 1 || outer > 6) {
+            return -100;
+        }
+        int value = 3;
+        if (outer >= 2 && outer <= 5) {
+            value += 30;
+            if (inner >= 2 && inner <= 4) {
+                value += 100;
+            }
+        }
+        return value;
+    }
+
+    /** Number of 2x2 blocks of squares (quads) that include at least
+     *  one square of the board. */
+    static final int NUM_QUADS = (BOARD_SIZE + 1) * (BOARD_SIZE + 1);
+
+    /** SQUARE_QUADS[S][K] is the index of the quad that has the square
+     *  with index S as its Kth square, where the squares of a quad are
+     *  numbered 0 (lower left), 1 (lower right), 2 (upper left), and
+     *  3 (upper right).  The quad whose upper-right square is in
+     *  column C and row R has index R * (BOARD_SIZE + 1) + C. */
+    private static final int[][] SQUARE_QUADS = new int[NUM_SQUARES][4];
+
+    static {
+        for (int sq = 0; sq < NUM_SQUARES; sq += 1) {
+            int r = sq / BOARD_SIZE, c = sq % BOARD_SIZE;
+            for (int k = 0; k < 4; k += 1) {
+                int qr = r + 1 - k / 2, qc = c + 1 - k % 2;
+                SQUARE_QUADS[sq][k] = qr * (BOARD_SIZE + 1) + qc;
+            }
+        }
+    }
+
+    /** QUAD_EULER[P] is four times the contribution to the Euler number
+     *  of a quad whose occupied squares are the set bits of P (see
+     *  SQUARE_QUADS). */
+    private static final int[] QUAD_EULER = {
+        0, 1, 1, 0, 1, 0, -2, -1, 1, -2, 0, -1, 0, -1, -1, 0
+    };
+
+    /** An upper bound on the number of legal moves in any position. */
+    static final int MAX_MOVES = 8 * NUM_SQUARES;
+
     /** Pattern describing a valid square designator (cr). */
     static final Pattern ROW_COL = Pattern.compile("^[a-h][1-8]$");
 
@@ -51,30 +114,30 @@ class Board {
 
     /** Set my state to CONTENTS with SIDE to move. */
     void initialize(Piece[][] contents, Piece side) {
-        if (contents.equals(INITIAL_PIECES)) {
-            _winner = null;
+        if (contents == INITIAL_PIECES) {
             _moveLimit = DEFAULT_MOVE_LIMIT;
         }
-        for (int i = 0; i < contents.length; i++) {
-            for (int j = 0; j < contents[i].length; j++) {
-                Piece m = contents[i][j];
-                state[i][j] = m;
-            }
-        }
-        for (int i = 0; i < contents.length; i++) {
-            for (int j = 0; j < contents[i].length; j++) {
-                int index = (i << 3) + j;
-                Piece m = contents[i][j];
-                _board[index] = m;
+        _whitePieces = _blackPieces = 0L;
+        for (int r = 0; r < contents.length; r++) {
+            for (int c = 0; c < contents[r].length; c++) {
+                long bit = 1L << ((r << 3) + c);
+                if (contents[r][c] == WP) {
+                    _whitePieces |= bit;
+                } else if (contents[r][c] == BP) {
+                    _blackPieces |= bit;
+                }
             }
         }
         _turn = side;
         if (_moveLimit == 0) {
             _moveLimit = DEFAULT_MOVE_LIMIT;
         }
-        whiteSquares = getWhiteSq();
-        blackSquares = getBlackSq();
-        computeRegions();
+        _movesMade = 0;
+        Arrays.fill(_regionCounts, -1);
+        _winnerKnown = false;
+        _winner = null;
+        _subsetsInitialized = false;
+        recomputeTables();
     }
 
     /** Set me to the initial configuration. */
@@ -87,28 +150,73 @@ class Board {
         if (board == this) {
             return;
         }
-        initialize(board.state, board.turn());
-        this._moveLimit = board._moveLimit;
-        this._winnerKnown = board._winnerKnown;
-        this._winner = board._winner;
-        this._subsetsInitialized = board._subsetsInitialized;
-
+        _whitePieces = board._whitePieces;
+        _blackPieces = board._blackPieces;
+        _turn = board._turn;
+        _key = board._key;
+        if (_undo.length != board._undo.length) {
+            _undo = new int[board._undo.length];
+            _regionCounts = new int[board._regionCounts.length];
+        }
+        System.arraycopy(board._undo, 0, _undo, 0, board._movesMade);
+        System.arraycopy(board._regionCounts, 0, _regionCounts, 0,
+                         2 * board._movesMade + 2);
+        _movesMade = board._movesMade;
+        _moveLimit = board._moveLimit;
+        _winnerKnown = board._winnerKnown;
+        _winner = board._winner;
+        _subsetsInitialized = false;
+        for (int side = 0; side < 2; side += 1) {
+            System.arraycopy(board._pieceSquares[side], 0,
+                             _pieceSquares[side], 0, board._pieceCount[side]);
+            _pieceCount[side] = board._pieceCount[side];
+        }
+        System.arraycopy(board._pieceIndex, 0, _pieceIndex, 0, NUM_SQUARES);
+        System.arraycopy(board._lineCounts, 0, _lineCounts, 0,
+                         _lineCounts.length);
+        System.arraycopy(board._placement, 0, _placement, 0, 2);
+        System.arraycopy(board._rowSums, 0, _rowSums, 0, 2);
+        System.arraycopy(board._colSums, 0, _colSums, 0, 2);
+        System.arraycopy(board._squareSums, 0, _squareSums, 0, 2);
+        System.arraycopy(board._eulerSums, 0, _eulerSums, 0, 2);
+        for (int side = 0; side < 2; side += 1) {
+            System.arraycopy(board._quads[side], 0, _quads[side], 0,
+                             NUM_QUADS);
+        }
     }
 
     /** Return the contents of the square at SQ. */
     Piece get(Square sq) {
-        return _board[sq.index()];
+        long bit = 1L << sq.index();
+        if ((_blackPieces & bit) != 0) {
+            return BP;
+        } else if ((_whitePieces & bit) != 0) {
+            return WP;
+        } else {
+            return EMP;
+        }
     }
 
     /** Set the square at SQ to V and set the side that is to move next
-     *  to NEXT, if NEXT is not null. */
+     *  to NEXT, if NEXT is not null.  Forgets the moves made so far,
+     *  which no longer lead to the resulting position. */
     void set(Square sq, Piece v, Piece next) {
-        state[sq.row()][sq.col()] = v;
+        long bit = 1L << sq.index();
+        _whitePieces &= ~bit;
+        _blackPieces &= ~bit;
+        if (v == WP) {
+            _whitePieces |= bit;
+        } else if (v == BP) {
+            _blackPieces |= bit;
+        }
         if (next != null) {
-            initialize(state, next);
-        } else {
-            initialize(state, _turn);
+            _turn = next;
         }
+        _movesMade = 0;
+        Arrays.fill(_regionCounts, -1);
+        _winnerKnown = false;
+        _subsetsInitialized = false;
+        recomputeTables();
     }
 
     /** Set the square at SQ to V, without modifying the side that
@@ -127,42 +235,234 @@ class Board {
      *  is false. */
     void makeMove(Move move) {
         assert isLegal(move);
-        Square fromSq = move.getFrom();
-        Square toSq = move.getTo();
-        Piece from = get(fromSq);
-        Piece to = get(toSq);
-        if (to.equals(EMP)) {
-            move = Move.mv(fromSq, toSq, false);
+        makeMove(move.pack());
+    }
+
+    /** Assuming it is legal, make the move whose packed encoding (see
+     *  Move.pack) is MOVE. The capture flag of MOVE is ignored. */
+    void makeMove(int move) {
+        int from = Move.fromIndex(move), to = Move.toIndex(move);
+        long fromBit = 1L << from, toBit = 1L << to;
+        int mover = _turn.ordinal(), enemy = 1 - mover;
+        boolean capture = (pieces(_turn.opposite()) & toBit) != 0;
+        if (_turn == WP) {
+            _whitePieces ^= fromBit | toBit;
+            _blackPieces &= ~toBit;
         } else {
-            move = Move.mv(fromSq, toSq, true);
+            _blackPieces ^= fromBit | toBit;
+            _whitePieces &= ~toBit;
+        }
+        _key ^= ZOBRIST[mover][from] ^ ZOBRIST[mover][to] ^ WHITE_TO_MOVE;
+        if (capture) {
+            _key ^= ZOBRIST[enemy][to];
+            removePiece(enemy, to);
+        } else {
+            addToLines(to, 1);
+        }
+        addToLines(from, -1);
+        movePiece(mover, from, to);
+        if (_movesMade + 1 == _undo.length) {
+            _undo = Arrays.copyOf(_undo, 2 * _undo.length);
+            _regionCounts = Arrays.copyOf(_regionCounts, 2 * _undo.length);
         }
-        state[fromSq.row()][fromSq.col()] = EMP;
-        state[toSq.row()][toSq.col()] = from;
+        _undo[_movesMade] = Move.pack(from, to, capture);
+        _movesMade += 1;
+        int k = 2 * _movesMade;
+        _regionCounts[k + mover] = -1;
+        _regionCounts[k + enemy] =
+            capture ? -1 : _regionCounts[k - 2 + enemy];
+        _turn = _turn.opposite();
+        _winnerKnown = false;
         _subsetsInitialized = false;
-        initialize(state, _turn.opposite());
-        _moves.add(move);
     }
 
     /** Retract (unmake) one move, returning to the state immediately before
      *  that move.  Requires that movesMade () > 0. */
     void retract() {
         assert movesMade() > 0;
-        Move last = _moves.get(movesMade() - 1);
-        Piece to = get(last.getTo());
-        Square toSq = last.getTo();
-        Square fromSq = last.getFrom();
-        if (!last.isCapture()) {
-            state[toSq.row()][toSq.col()] = EMP;
+        _movesMade -= 1;
+        int last = _undo[_movesMade];
+        int from = Move.fromIndex(last), to = Move.toIndex(last);
+        boolean capture = Move.isCapture(last);
+        long fromBit = 1L << from, toBit = 1L << to;
+        _turn = _turn.opposite();
+        if (_turn == WP) {
+            _whitePieces ^= fromBit | toBit;
+            if (capture) {
+                _blackPieces |= toBit;
+            }
         } else {
-            if (to.equals(BP)) {
-                state[toSq.row()][toSq.col()] = WP;
-            } else {
-                state[toSq.row()][toSq.col()] = BP;
+            _blackPieces ^= fromBit | toBit;
+            if (capture) {
+                _whitePieces |= toBit;
             }
         }
-        state[fromSq.row()][fromSq.col()] = to;
-        initialize(state, _turn.opposite());
-        _moves.remove(last);
+        int mover = _turn.ordinal();
+        _key ^= ZOBRIST[mover][from] ^ ZOBRIST[mover][to] ^ WHITE_TO_MOVE;
+        movePiece(mover, to, from);
+        if (capture) {
+            _key ^= ZOBRIST[1 - mover][to];
+            addPiece(1 - mover, to);
+        } else {
+            addToLines(to, -1);
+        }
+        addToLines(from, 1);
+        _winnerKnown = false;
+        _subsetsInitialized = false;
+    }
+
+    /** Pass the turn to the other side without moving, for the sake of
+     *  null-move pruning in searches.  Must be undone by retractNullMove
+     *  before any other move is retracted.  Does not count as a move
+     *  made. */
+    void makeNullMove() {
+        _turn = _turn.opposite();
+        _key ^= WHITE_TO_MOVE;
+        _winnerKnown = false;
+    }
+
+    /** Undo the last makeNullMove. */
+    void retractNullMove() {
+        makeNullMove();
+    }
+
+    /** Return the last move made and not retracted, with isCapture()
+     *  set appropriately.  Requires that movesMade() > 0. */
+    Move lastMove() {
+        return Move.mv(_undo[_movesMade - 1]);
+    }
+
+    /** Add a piece of SIDE (a Piece ordinal) at square index SQ to the
+     *  piece lists. */
+    private void addPiece(int side, int sq) {
+        _pieceIndex[sq] = _pieceCount[side];
+        _pieceSquares[side][_pieceCount[side]] = sq;
+        _pieceCount[side] += 1;
+        addToFeatures(side, sq, 1);
+    }
+
+    /** Remove the piece of SIDE at square index SQ from the piece lists,
+     *  filling its slot with SIDE's last listed piece. */
+    private void removePiece(int side, int sq) {
+        _pieceCount[side] -= 1;
+        int k = _pieceIndex[sq],
+            last = _pieceSquares[side][_pieceCount[side]];
+        _pieceSquares[side][k] = last;
+        _pieceIndex[last] = k;
+        addToFeatures(side, sq, -1);
+    }
+
+    /** Record in the piece lists that SIDE's piece at square index FROM
+     *  is now at TO. */
+    private void movePiece(int side, int from, int to) {
+        int k = _pieceIndex[from];
+        _pieceSquares[side][k] = to;
+        _pieceIndex[to] = k;
+        addToFeatures(side, from, -1);
+        addToFeatures(side, to, 1);
+    }
+
+    /** Add DELTA times the contribution of a piece of SIDE (a Piece
+     *  ordinal) at square index SQ to the evaluation features. */
+    private void addToFeatures(int side, int sq, int delta) {
+        int r = sq >>> 3, c = sq & 7;
+        _placement[side] += delta * PLACEMENT[side][sq];
+        _rowSums[side] += delta * r;
+        _colSums[side] += delta * c;
+        _squareSums[side] += delta * (r * r + c * c);
+        byte[] quads = _quads[side];
+        for (int k = 0; k < 4; k += 1) {
+            int q = SQUARE_QUADS[sq][k], old = quads[q];
+            quads[q] ^= 1 << k;
+            _eulerSums[side] += QUAD_EULER[quads[q]] - QUAD_EULER[old];
+        }
+    }
+
+    /** Recompute the piece lists and line counts from scratch from the
+     *  occupancy masks. */
+    private void recomputeTables() {
+        _pieceCount[BP.ordinal()] = _pieceCount[WP.ordinal()] = 0;
+        Arrays.fill(_placement, 0);
+        Arrays.fill(_rowSums, 0);
+        Arrays.fill(_colSums, 0);
+        Arrays.fill(_squareSums, 0);
+        Arrays.fill(_eulerSums, 0);
+        Arrays.fill(_quads[0], (byte) 0);
+        Arrays.fill(_quads[1], (byte) 0);
+        for (long m = _blackPieces; m != 0; m &= m - 1) {
+            addPiece(BP.ordinal(), Long.numberOfTrailingZeros(m));
+        }
+        for (long m = _whitePieces; m != 0; m &= m - 1) {
+            addPiece(WP.ordinal(), Long.numberOfTrailingZeros(m));
+        }
+        Arrays.fill(_lineCounts, 0);
+        for (long m = occupied(); m != 0; m &= m - 1) {
+            addToLines(Long.numberOfTrailingZeros(m), 1);
+        }
+        _key = _turn == WP ? WHITE_TO_MOVE : 0L;
+        for (int side = 0; side < 2; side += 1) {
+            for (int k = 0; k < _pieceCount[side]; k += 1) {
+                _key ^= ZOBRIST[side][_pieceSquares[side][k]];
+            }
+        }
+    }
+
+    /** Add DELTA to the piece counts of the four lines through the square
+     *  with index SQ. */
+    private void addToLines(int sq, int delta) {
+        _lineCounts[LINE_INDEX[0][sq]] += delta;
+        _lineCounts[LINE_INDEX[1][sq]] += delta;
+        _lineCounts[LINE_INDEX[2][sq]] += delta;
+        _lineCounts[LINE_INDEX[3][sq]] += delta;
+    }
+
+    /** Return the total placement award (see PLACEMENT) of SIDE's
+     *  pieces. */
+    int placement(Piece side) {
+        return _placement[side.ordinal()];
+    }
+
+    /** Return a measure of how spread out SIDE's pieces are: the sum of
+     *  the squared distances of the pieces from their center of mass,
+     *  multiplied by the number of pieces.  Zero for a single piece. */
+    int spread(Piece side) {
+        int s = side.ordinal();
+        return _pieceCount[s] * _squareSums[s]
+            - _rowSums[s] * _rowSums[s] - _colSums[s] * _colSums[s];
+    }
+
+    /** Return the Euler number of SIDE's pieces: the number of their
+     *  regions less the number of holes in those regions, taking
+     *  diagonally adjacent pieces as connected.  It is computed in
+     *  constant time from counts of the patterns of SIDE's pieces in
+     *  each 2x2 block of squares (including blocks that hang over the
+     *  edge of the board), as (Q1 - Q3 - 2 QD) / 4, where Q1 and Q3 are
+     *  the numbers of blocks containing one and three pieces, and QD
+     *  those containing two diagonally opposite pieces.  Since holes
+     *  are rare, this is a good estimate of regionCount(SIDE), and it
+     *  is never greater. */
+    int eulerNumber(Piece side) {
+        return _eulerSums[side.ordinal()] / 4;
+    }
+
+    /** Return the number of pieces on the line through the square with
+     *  index SQ in direction DIR (and its opposite), including any piece
+     *  on SQ itself.  This is the length of any move from SQ in
+     *  direction DIR. */
+    int lineCount(int sq, int dir) {
+        return _lineCounts[LINE_INDEX[dir & 3][sq]];
+    }
+
+    /** Return the number of SIDE's pieces on the board. */
+    int pieceCount(Piece side) {
+        return _pieceCount[side.ordinal()];
+    }
+
+    /** Return the index of SIDE's Kth piece, 0 <= K < pieceCount(SIDE).
+     *  The order of pieces is arbitrary, and changes as moves are made
+     *  and retracted. */
+    int pieceSquare(Piece side, int k) {
+        return _pieceSquares[side.ordinal()][k];
     }
 
     /** Return the Piece representing who is next to move. */
@@ -170,38 +470,29 @@ class Board {
         return _turn;
     }
 
+    /** Return the set of squares occupied by SIDE's pieces, as a mask in
+     *  which Square S corresponds to bit S.index(). */
+    long pieces(Piece side) {
+        return side == WP ? _whitePieces : side == BP ? _blackPieces : 0L;
+    }
+
+    /** Return the set of all occupied squares. */
+    long occupied() {
+        return _whitePieces | _blackPieces;
+    }
+
     /** Return true iff FROM - TO is a legal move for the player currently on
      *  move. */
     boolean isLegal(Square from, Square to) {
-        Piece enemy = get(from).opposite();
-        Piece end = get(to);
-        Piece fromP = get(from);
-        if (!fromP.equals(_turn)) {
-            return false;
-        }
-        if (!from.isValidMove(to)) {
-            return false;
-        }
-        int dir = from.direction(to);
-        int pieceCount = numPieces(from, to, dir);
-        if (fromP.equals(end)) {
-            return false;
-        }  else if (dir == -1) {
-            return false;
-        } else if (from.distance(to) != pieceCount) {
-            return false;
-        } else {
-            Square next = from.moveDest(dir, 1);
-            while (next != null) {
-                if (next.equals(to)) {
-                    return true;
-                } else if (get(next).equals(enemy)) {
-                    return false;
-                }
-                next = next.moveDest(dir, 1);
-            }
+        long mine = pieces(_turn);
+        if ((mine & (1L << from.index())) == 0 || !from.isValidMove(to)
+            || (mine & (1L << to.index())) != 0) {
             return false;
         }
+        return from.distance(to) == lineCount(from.index(),
+                                              from.direction(to))
+            && (BETWEEN[from.index()][to.index()]
+                & pieces(_turn.opposite())) == 0;
     }
 
     /** Return true iff MOVE is legal for the player currently on move.
@@ -210,24 +501,100 @@ class Board {
         return isLegal(move.getFrom(), move.getTo());
     }
 
+    /** Return true iff packed move MOVE (as from Move.pack) is legal for
+     *  the player currently on move, and is flagged as a capture iff
+     *  it captures. */
+    boolean isLegal(int move) {
+        int to = Move.toIndex(move);
+        return isLegal(ALL_SQUARES[Move.fromIndex(move)], ALL_SQUARES[to])
+            && Move.isCapture(move)
+               == ((pieces(_turn.opposite()) & (1L << to)) != 0);
+    }
+
     /** Return a sequence of all legal moves from this position. */
     List<Move> legalMoves() {
-        List<Move> legals = new ArrayList<>();
-        for (Square from : ALL_SQUARES) {
-            for (Square other : ALL_SQUARES) {
-                if (get(from).equals(_turn)) {
-                    if (isLegal(from, other)) {
-                        if (get(other).equals(_turn.opposite())) {
-                            Move m = Move.mv(from, other, true);
-                            legals.add(Move.mv(from, other, true));
-                        } else {
-                            legals.add(Move.mv(from, other, false));
-                        }
-                    }
+        int n = generateMoves(_moveBuffer, 0);
+        List<Move> legals = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            legals.add(Move.mv(_moveBuffer[i]));
+        }
+        return legals;
+    }
+
+    /** Store all legal moves from this position into MOVES, starting at
+     *  MOVES[START], and return the index just past the last one stored.
+     *  Moves are packed as by Move.pack, with the capture flag set
+     *  appropriately.  MOVES must have room for MAX_MOVES entries after
+     *  START. */
+    int generateMoves(int[] moves, int start) {
+        return generateMoves(moves, start, ~pieces(_turn));
+    }
+
+    /** Store the legal captures from this position into MOVES, as for
+     *  generateMoves(MOVES, START), returning the index past the last
+     *  one stored. */
+    int generateCaptures(int[] moves, int start) {
+        return generateMoves(moves, start, pieces(_turn.opposite()));
+    }
+
+    /** Store the legal non-capturing moves from this position into
+     *  MOVES, as for generateMoves(MOVES, START), returning the index
+     *  past the last one stored. */
+    int generateQuiets(int[] moves, int start) {
+        return generateMoves(moves, start, ~occupied());
+    }
+
+    /** Store the legal moves from this position to squares in TARGETS
+     *  (which must not include any of the mover's pieces) into MOVES,
+     *  as for generateMoves(MOVES, START), returning the index past the
+     *  last one stored. */
+    private int generateMoves(int[] moves, int start, long targets) {
+        int n = start;
+        long enemy = pieces(_turn.opposite());
+        int[] list = _pieceSquares[_turn.ordinal()];
+        for (int k = _pieceCount[_turn.ordinal()] - 1; k >= 0; k -= 1) {
+            int from = list[k];
+            for (int dir = 0; dir < 8; dir += 1) {
+                int to = DEST[(from << 3) + dir][lineCount(from, dir)];
+                if (to < 0) {
+                    continue;
+                }
+                long toBit = 1L << to;
+                if ((targets & toBit) != 0
+                    && (BETWEEN[from][to] & enemy) == 0) {
+                    moves[n] = Move.pack(from, to, (enemy & toBit) != 0);
+                    n += 1;
                 }
             }
         }
-        return legals;
+        return n;
+    }
+
+    /** Return the number of distinct sequences of DEPTH legal moves from
+     *  this position (without regard to whether the game ends along the
+     *  way).  Used to check and time move generation. */
+    long perft(int depth) {
+        return perft(depth, new int[depth + 1][MAX_MOVES]);
+    }
+
+    /** Return perft(DEPTH), using BUFFERS[DEPTH] for this level's
+     *  moves. */
+    private long perft(int depth, int[][] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = buffers[depth];
+        int n = generateMoves(moves, 0);
+        if (depth == 1) {
+            return n;
+        }
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            makeMove(moves[i]);
+            total += perft(depth - 1, buffers);
+            retract();
+        }
+        return total;
     }
 
     /** Return true iff the game is over (either player has all his
@@ -238,7 +605,24 @@ class Board {
 
     /** Return true iff SIDE's pieces are continguous. */
     boolean piecesContiguous(Piece side) {
-        return getRegionSizes(side).size() == 1;
+        int count = _regionCounts[2 * _movesMade + side.ordinal()];
+        if (count >= 0) {
+            return count == 1;
+        }
+        if (eulerNumber(side) > 1) {
+            return false;
+        }
+        long mask = pieces(side);
+        return mask != 0 && floodFill(mask & -mask, mask) == mask;
+    }
+
+    /** Return true iff the non-capturing move MOVE (packed as by
+     *  Move.pack) would make the pieces of the side to move contiguous.
+     *  Cheaper than making MOVE and calling piecesContiguous. */
+    boolean quietMoveJoins(int move) {
+        long to = 1L << Move.toIndex(move);
+        long mask = (pieces(_turn) & ~(1L << Move.fromIndex(move))) | to;
+        return floodFill(to, mask) == mask;
     }
 
     /** Return the winning side, if any.  If the game is not over, result is
@@ -255,7 +639,7 @@ class Board {
                 _winner = EMP;
                 _winnerKnown = true;
             } else {
-                _winnerKnown = false;
+                _winnerKnown = true;
                 _winner = null;
             }
         }
@@ -266,18 +650,30 @@ class Board {
      *  retracted).  Each valid call to makeMove with a normal move increases
      *  this number by 1. */
     int movesMade() {
-        return _moves.size();
+        return _movesMade;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (!(obj instanceof Board)) {
+            return false;
+        }
         Board b = (Board) obj;
-        return Arrays.deepEquals(_board, b._board) && _turn == b._turn;
+        return _key == b._key && _whitePieces == b._whitePieces
+            && _blackPieces == b._blackPieces && _turn == b._turn;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(_board) * 2 + _turn.hashCode();
+        return Long.hashCode(_key);
+    }
+
+    /** Return a 64-bit Zobrist hash of my contents and side to move.
+     *  Equal positions have equal keys, and distinct positions almost
+     *  always have distinct keys.  Maintained incrementally, so this
+     *  costs nothing to call. */
+    long hashKey() {
+        return _key;
     }
 
     @Override
@@ -301,52 +697,46 @@ class Board {
         return false;
     }
 
-    /** Return the size of the as-yet unvisited cluster of squares
-     *  containing P at and adjacent to SQ.  VISITED indicates squares that
-     *  have already been processed or are in different clusters.  Update
-     *  VISITED to reflect squares counted. */
-    private int numContig(Square sq, boolean[][] visited, Piece p) {
-        int total = 0;
-        if (exists(sq.row(), sq.col()) && !visited[sq.row()][sq.col()]) {
-            if (!get(sq).equals(EMP)) {
-                if (get(sq).equals(p)) {
-                    total += 1;
-                    visited[sq.row()][sq.col()] = true;
-                    for (Square adj : sq.adjacent()) {
-                        total += numContig(adj, visited, p);
-                    }
-                }
-            }
-        }
-        return total;
-    }
-
     /** Set the values of _whiteRegionSizes and _blackRegionSizes. */
     private void computeRegions() {
         if (_subsetsInitialized) {
             return;
         }
-        _whiteRegionSizes.clear();
-        _blackRegionSizes.clear();
-        boolean[][] wTrack = new boolean[BOARD_SIZE][BOARD_SIZE];
-        for (Square sq : whiteSquares) {
-            Piece sqP = get(sq);
-            int regionSize = numContig(sq, wTrack, sqP);
-            if (regionSize != 0) {
-                _whiteRegionSizes.add(regionSize);
+        regionSizes(_whitePieces, _whiteRegionSizes);
+        regionSizes(_blackPieces, _blackRegionSizes);
+        _subsetsInitialized = true;
+    }
+
+    /** Set SIZES to the sizes of the connected regions of MASK, largest
+     *  first. */
+    private void regionSizes(long mask, ArrayList<Integer> sizes) {
+        sizes.clear();
+        while (mask != 0) {
+            long region = floodFill(mask & -mask, mask);
+            mask &= ~region;
+            int size = Long.bitCount(region), k = sizes.size();
+            while (k > 0 && sizes.get(k - 1) < size) {
+                k -= 1;
             }
+            sizes.add(k, size);
         }
-        boolean[][] bTrack = new boolean[BOARD_SIZE][BOARD_SIZE];
-        for (Square sq : blackSquares) {
-            Piece sqP = get(sq);
-            int regionSize = numContig(sq, bTrack, sqP);
-            if (regionSize != 0) {
-                _blackRegionSizes.add(regionSize);
+    }
+
+    /** Return the number of connected regions of SIDE's pieces.  The
+     *  count is cached for each position on the move stack, so that
+     *  retracting a move restores it without recomputation, and making
+     *  a move preserves the count for a side that loses no pieces. */
+    int regionCount(Piece side) {
+        int k = 2 * _movesMade + side.ordinal();
+        if (_regionCounts[k] < 0) {
+            int n;
+            long mask = pieces(side);
+            for (n = 0; mask != 0; n += 1) {
+                mask &= ~floodFill(mask & -mask, mask);
             }
+            _regionCounts[k] = n;
         }
-        Collections.sort(_whiteRegionSizes, Collections.reverseOrder());
-        Collections.sort(_blackRegionSizes, Collections.reverseOrder());
-        _subsetsInitialized = true;
+        return _regionCounts[k];
     }
 
     /** Return the sizes of all the regions in the current union-find
@@ -367,68 +757,68 @@ class Board {
      * @param dir - the direction in which we are moving
      * return the number of pieces along this line of action*/
     int numPieces(Square from, Square to, int dir) {
-        int counter = 1;
-        int opposite = dir - 4;
-        if (dir - 4 < 0) {
-            opposite = dir + 4;
-        }
-        Square next = from.moveDest(dir, 1);
-        while (next != null) {
-            if (!get(next).equals(EMP)) {
-                counter += 1;
-            }
-            next = next.moveDest(dir, 1);
-        }
-        Square back = from.moveDest(opposite, 1);
-        while (back != null) {
-            if (!get(back).equals(EMP)) {
-                counter += 1;
-            }
-            back = back.moveDest(opposite, 1);
-        }
-        return counter;
+        return lineCount(from.index(), dir);
     }
 
     /** Returns the number of WP's on the board.
      * @return the list of white squares on the board*/
     public ArrayList<Square> getWhiteSq() {
-        ArrayList<Square> holder = new ArrayList<>();
-        for (Square sq : ALL_SQUARES) {
-            if (get(sq).equals(WP)) {
-                holder.add(sq);
-            }
-        }
-        return holder;
+        return pieceList(WP);
     }
 
     /** Returns BP's on the board.
      * @return the list of black squares on the board*/
     public ArrayList<Square> getBlackSq() {
-        ArrayList<Square> holder = new ArrayList<>();
-        for (Square sq : ALL_SQUARES) {
-            if (get(sq).equals(BP)) {
-                holder.add(sq);
-            }
-        }
-        return holder;
+        return pieceList(BP);
     }
 
     /** Getter method for WHITESQUARES.
      * @return the list of white squares on the board */
     ArrayList<Square> getWhiteSquares() {
-        return whiteSquares;
+        return pieceList(WP);
     }
 
     /** Getter method for BLACKSQUARES.
      * @return the number of black squares on the board */
     ArrayList<Square> getBlackSquares() {
-        return blackSquares;
+        return pieceList(BP);
     }
 
     /** Getter method for state variable.
      * @return the state of the board */
     Piece[][] state() {
-        return state;
+        Piece[][] result = new Piece[BOARD_SIZE][BOARD_SIZE];
+        for (Square sq : ALL_SQUARES) {
+            result[sq.row()][sq.col()] = get(sq);
+        }
+        return result;
+    }
+
+    /** Return the Squares holding SIDE's pieces, in piece-list order. */
+    private ArrayList<Square> pieceList(Piece side) {
+        ArrayList<Square> holder = new ArrayList<>(pieceCount(side));
+        for (int k = 0; k < pieceCount(side); k += 1) {
+            holder.add(ALL_SQUARES[pieceSquare(side, k)]);
+        }
+        return holder;
+    }
+
+    /** Return MASK together with all squares adjacent to a square in
+     *  MASK. */
+    static long neighbors(long mask) {
+        long row = mask | ((mask << 1) & ~FILE_A) | ((mask >>> 1) & ~FILE_H);
+        return row | (row << BOARD_SIZE) | (row >>> BOARD_SIZE);
+    }
+
+    /** Return the squares of MASK that are connected to SEED (a subset
+     *  of MASK) through adjacent squares of MASK. */
+    static long floodFill(long seed, long mask) {
+        long prev;
+        do {
+            prev = seed;
+            seed = neighbors(seed) & mask;
+        } while (seed != prev);
+        return seed;
     }
 
     /** The standard initial configuration for Lines of Action (bottom row
@@ -444,11 +834,131 @@ class Board {
             { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
     };
 
-    /** Current contents of the board.  Square S is at _board[S.index()]. */
-    private final Piece[] _board = new Piece[BOARD_SIZE  * BOARD_SIZE];
+    /** The leftmost (a) and rightmost (h) columns, as masks. */
+    private static final long
+        FILE_A = 0x0101010101010101L,
+        FILE_H = FILE_A << (BOARD_SIZE - 1);
+
+    /** DEST[8 * S + D][K] is the index of the Square K steps from the
+     *  Square with index S in direction D, or -1 if there is none. */
+    private static final int[][] DEST = new int[8 * NUM_SQUARES][];
 
-    /** List of all unretracted moves on this board, in order. */
-    private final ArrayList<Move> _moves = new ArrayList<>();
+    static {
+        for (Square from : ALL_SQUARES) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                int[] dests = DEST[(from.index() << 3) + dir] =
+                    new int[BOARD_SIZE + 1];
+                for (int k = 0; k <= BOARD_SIZE; k += 1) {
+                    Square to = from.moveDest(dir, k);
+                    dests[k] = to == null ? -1 : to.index();
+                }
+            }
+        }
+    }
+
+    /** BETWEEN[F][T] is the set of squares strictly between the Squares
+     *  with indices F and T, when these lie on a common line. */
+    private static final long[][] BETWEEN = new long[NUM_SQUARES][NUM_SQUARES];
+
+    /** Number of diagonals in each of the two diagonal directions. */
+    private static final int NUM_DIAGONALS = 2 * BOARD_SIZE - 1;
+
+    /** LINE_INDEX[D][S] is the position in _lineCounts of the count for
+     *  the line through the Square with index S in direction D or D + 4
+     *  (0 <= D < 4).  Files come first, then diagonals, then ranks, then
+     *  anti-diagonals. */
+    private static final int[][] LINE_INDEX = new int[4][NUM_SQUARES];
+
+    static {
+        for (Square sq : ALL_SQUARES) {
+            int r = sq.row(), c = sq.col();
+            LINE_INDEX[0][sq.index()] = c;
+            LINE_INDEX[1][sq.index()] = BOARD_SIZE + r - c + BOARD_SIZE - 1;
+            LINE_INDEX[2][sq.index()] = BOARD_SIZE + NUM_DIAGONALS + r;
+            LINE_INDEX[3][sq.index()] =
+                2 * BOARD_SIZE + NUM_DIAGONALS + r + c;
+        }
+    }
+
+    static {
+        for (Square from : ALL_SQUARES) {
+            int f = from.index();
+            for (int dir = 0; dir < 8; dir += 1) {
+                long path = 0;
+                for (Square to = from.moveDest(dir, 1); to != null;
+                     to = to.moveDest(dir, 1)) {
+                    BETWEEN[f][to.index()] = path;
+                    path |= 1L << to.index();
+                }
+            }
+        }
+    }
+
+    /** ZOBRIST[P][S] is the random hash contribution of a piece of the
+     *  side with ordinal P on the square with index S.  The generator
+     *  is seeded with a constant so that keys are the same in every
+     *  run. */
+    private static final long[][] ZOBRIST = new long[2][NUM_SQUARES];
+    /** Hash contribution of white being the side to move. */
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        Random keys = new Random(0x10AL);
+        for (long[] side : ZOBRIST) {
+            for (int k = 0; k < NUM_SQUARES; k += 1) {
+                side[k] = keys.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = keys.nextLong();
+    }
+
+    /** Current contents of the board: the squares occupied by white and
+     *  by black pieces.  Square S corresponds to bit S.index(). */
+    private long _whitePieces, _blackPieces;
+    /** Zobrist hash of the current position (see hashKey). */
+    private long _key;
+
+    /** All unretracted moves on this board, in order, packed as by
+     *  Move.pack with the capture flag set. */
+    private int[] _undo = new int[4 * DEFAULT_MOVE_LIMIT];
+    /** _regionCounts[2 * K + P] is the number of connected regions of the
+     *  pieces of the side with ordinal P after the first K moves in
+     *  _undo, or -1 if not yet known. */
+    private int[] _regionCounts = new int[2 * _undo.length];
+    /** Number of valid entries in _undo. */
+    private int _movesMade;
+
+    /** Scratch space for legalMoves. */
+    private final int[] _moveBuffer = new int[MAX_MOVES];
+
+    /** Number of pieces on each file, diagonal, rank, and anti-diagonal,
+     *  as indexed by LINE_INDEX. */
+    private final int[] _lineCounts =
+        new int[2 * BOARD_SIZE + 2 * NUM_DIAGONALS];
+
+    /** _pieceSquares[P][0 .. _pieceCount[P]-1] are the square indices of
+     *  the pieces of the side with ordinal P, in arbitrary order. */
+    private final int[][] _pieceSquares = new int[2][NUM_SQUARES];
+    /** Number of pieces of each side, by ordinal. */
+    private final int[] _pieceCount = new int[2];
+    /** Evaluation features of each side, by ordinal, kept up to date as
+     *  pieces come and go: the sum of the PLACEMENT awards of its
+     *  pieces; the sums of their rows, of their columns, and of the
+     *  squares of their rows and columns; and four times their Euler
+     *  number. */
+    private final int[]
+        _placement = new int[2],
+        _rowSums = new int[2],
+        _colSums = new int[2],
+        _squareSums = new int[2],
+        _eulerSums = new int[2];
+    /** _quads[P][Q] has bit K set iff the Kth square of quad Q (see
+     *  SQUARE_QUADS) holds a piece of the side with ordinal P.
+     *  _eulerSums[P] is the sum of QUAD_EULER over _quads[P]. */
+    private final byte[][] _quads = new byte[2][NUM_QUADS];
+    /** _pieceIndex[S] is the position in its side's piece list of the
+     *  piece on the square with index S, if any. */
+    private final int[] _pieceIndex = new int[NUM_SQUARES];
     /** Current side on move. */
     private Piece _turn;
     /** Limit on number of moves before tie is declared.  */
@@ -466,30 +976,4 @@ class Board {
     private final ArrayList<Integer>
             _whiteRegionSizes = new ArrayList<>(),
             _blackRegionSizes = new ArrayList<>();
-
-    /** Tells us the current state of the board, initially
-     * is equal to INITIAL_PIECES.
-     */
-    private Piece[][] state = {
-            { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP },
-            { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
-            { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
-            { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
-            { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
-            { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
-            { WP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
-            { EMP, BP,  BP,  BP,  BP,  BP,  BP,  EMP }
-    };
-
-    /** List of Squares corresponding to the
-     * white pieces on the current state of
-     * the board.
-     */
-    private ArrayList<Square> whiteSquares;
-
-    /** List of Squares corresponding to the
-     * black pieces on the current state of the
-     * board.
-     */
-    private ArrayList<Square> blackSquares;
 }
@@ -2,6 +2,10 @@
  * University of California.  All rights reserved. */
 package loa;
 
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -50,6 +54,18 @@ public class BoardTest {
         { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
     };
 
+    /** A position with a full rank, file, and diagonal, whose pieces
+     *  may each move eight squares along them. */
+    static final Piece[][] FULL_LINES = {
+        { WP,  EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { BP,  BP,  EMP, EMP, EMP, EMP, EMP, EMP },
+        { WP,  EMP, WP,  EMP, EMP, EMP, EMP, EMP },
+        { BP,  WP,  BP,  WP,  BP,  WP,  BP,  WP  },
+        { WP,  EMP, EMP, EMP, BP,  EMP, EMP, EMP },
+        { BP,  EMP, EMP, EMP, EMP, WP,  EMP, EMP },
+        { WP,  EMP, EMP, EMP, EMP, EMP, BP,  EMP },
+        { BP,  EMP, EMP, EMP, EMP, EMP, EMP, WP  },
+    };
 
     static final String BOARD1_STRING =
         "===\n"
@@ -100,6 +116,9 @@ public class BoardTest {
         assertTrue("Board 3 white contiguous?", b3.piecesContiguous(WP));
         assertTrue("Board 3 black contiguous?", b3.piecesContiguous(BP));
         assertTrue("Board 3 game over", b3.gameOver());
+        assertEquals("Board 1 black regions", 7, b1.regionCount(BP));
+        assertEquals("Board 1 largest white region", 5,
+                     (int) b1.getRegionSizes(WP).get(0));
     }
 
     @Test
@@ -108,6 +127,10 @@ public class BoardTest {
         Board b2 = new Board(BOARD1, BP);
 
         assertEquals("Board 1 equals Board 1", b1, b2);
+        assertEquals("equal hash keys", b1.hashKey(), b2.hashKey());
+        Board b3 = new Board(BOARD1, WP);
+        assertNotEquals("side to move differs", b1, b3);
+        assertNotEquals("side to move hashed", b1.hashKey(), b3.hashKey());
     }
 
     @Test
@@ -125,4 +148,212 @@ public class BoardTest {
                      0, b1.movesMade());
     }
 
+    @Test
+    public void testCaptureAndRetract() {
+        Board b0 = new Board(BOARD1, BP);
+        Board b1 = new Board(BOARD1, BP);
+        b1.makeMove(mv("f3-d5"));
+        assertEquals("square d5 after capture", BP, b1.get(sq(3, 4)));
+        assertEquals("turn after f3-d5", WP, b1.turn());
+        assertEquals("one move made", 1, b1.movesMade());
+        b1.retract();
+        assertEquals("captured piece restored", WP, b1.get(sq(3, 4)));
+        assertEquals("board restored after capture retracted", b0, b1);
+    }
+
+    /** Check that B's piece lists agree with its contents. */
+    private void checkPieceLists(Board b) {
+        for (Piece side : new Piece[] { BP, WP }) {
+            assertEquals("piece count", Long.bitCount(b.pieces(side)),
+                         b.pieceCount(side));
+            long seen = 0;
+            for (int k = 0; k < b.pieceCount(side); k += 1) {
+                seen |= 1L << b.pieceSquare(side, k);
+            }
+            assertEquals("piece list", b.pieces(side), seen);
+        }
+        for (Square from : Square.ALL_SQUARES) {
+            for (int dir = 0; dir < 4; dir += 1) {
+                int count = b.get(from) == EMP ? 0 : 1;
+                for (int d = dir; d < 8; d += 4) {
+                    for (Square s = from.moveDest(d, 1); s != null;
+                         s = s.moveDest(d, 1)) {
+                        count += b.get(s) == EMP ? 0 : 1;
+                    }
+                }
+                assertEquals("line count", count,
+                             b.lineCount(from.index(), dir));
+            }
+        }
+        for (Piece side : new Piece[] { BP, WP }) {
+            int total = 0;
+            for (int size : b.getRegionSizes(side)) {
+                total += size;
+            }
+            assertEquals("region sizes", b.pieceCount(side), total);
+            assertEquals("region count", b.getRegionSizes(side).size(),
+                         b.regionCount(side));
+            int placement = 0, n = b.pieceCount(side), spread = 0;
+            for (int i = 0; i < n; i += 1) {
+                Square s = Square.ALL_SQUARES[b.pieceSquare(side, i)];
+                placement += Board.PLACEMENT[side.ordinal()][s.index()];
+                for (int j = 0; j < n; j += 1) {
+                    Square t = Square.ALL_SQUARES[b.pieceSquare(side, j)];
+                    int dr = s.row() - t.row(), dc = s.col() - t.col();
+                    spread += dr * dr + dc * dc;
+                }
+            }
+            assertEquals("placement", placement, b.placement(side));
+            assertEquals("spread", spread / 2, b.spread(side));
+            assertEquals("Euler number",
+                         new Board(b.state(), b.turn()).eulerNumber(side),
+                         b.eulerNumber(side));
+            assertTrue("Euler number bounded",
+                       b.eulerNumber(side) <= b.regionCount(side));
+        }
+        assertEquals("hash key", new Board(b.state(), b.turn()).hashKey(),
+                     b.hashKey());
+    }
+
+    /** Check the Euler numbers of some simple patterns. */
+    @Test
+    public void testEulerNumber() {
+        Board b = new Board(new Piece[][] {
+            { WP, WP, WP, EMP, EMP, EMP, EMP, BP },
+            { WP, EMP, WP, EMP, EMP, EMP, BP, EMP },
+            { WP, WP, WP, EMP, EMP, EMP, EMP, EMP },
+            { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+            { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+            { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+            { BP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+            { EMP, EMP, EMP, EMP, EMP, EMP, EMP, WP },
+        }, BP);
+        assertEquals("ring with a hole and single", 2, b.regionCount(WP));
+        assertEquals("ring with a hole and single", 1, b.eulerNumber(WP));
+        assertEquals("diagonal pair and single", 2, b.eulerNumber(BP));
+        assertEquals("initial position", 2, new Board().eulerNumber(BP));
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        Board b = new Board(BOARD1, BP);
+        Board b0 = new Board(b);
+        Random r = new Random(61);
+        for (int i = 0; i < 20 && !b.gameOver(); i += 1) {
+            List<Move> moves = b.legalMoves();
+            Move m = moves.get(r.nextInt(moves.size()));
+            b.makeMove(m);
+            assertEquals("last move", m, b.lastMove());
+            checkPieceLists(b);
+        }
+        while (b.movesMade() > 0) {
+            b.retract();
+            checkPieceLists(b);
+        }
+        assertEquals("board restored after retractions", b0, b);
+    }
+
+    /** Check that set forgets the moves made before it, so that they
+     *  cannot be retracted into a different position. */
+    @Test
+    public void testSetForgetsMoves() {
+        Board b = new Board();
+        b.makeMove(mv("b1-b3"));
+        b.set(sq("b3"), EMP, WP);
+        b.set(sq("b1"), BP, WP);
+        assertEquals("no moves made", 0, b.movesMade());
+        assertEquals("position", new Board(new Board().state(), WP), b);
+        checkPieceLists(b);
+    }
+
+    @Test
+    public void testMoveGeneration() {
+        Board b = new Board(BOARD1, BP);
+        Random r = new Random(61);
+        for (int i = 0; i < 30 && !b.gameOver(); i += 1) {
+            int count = 0;
+            for (Square from : Square.ALL_SQUARES) {
+                for (Square to : Square.ALL_SQUARES) {
+                    count += b.isLegal(from, to) ? 1 : 0;
+                }
+            }
+            List<Move> moves = b.legalMoves();
+            assertEquals("number of legal moves", count, moves.size());
+            for (Move m : moves) {
+                assertTrue("generated move legal", b.isLegal(m));
+                assertEquals("capture flag", b.get(m.getTo()) != EMP,
+                             m.isCapture());
+            }
+            int[] staged = new int[2 * Board.MAX_MOVES];
+            int captures = b.generateCaptures(staged, 0);
+            int end = b.generateQuiets(staged, captures);
+            assertEquals("captures plus quiet moves", count, end);
+            for (int k = 0; k < end; k += 1) {
+                assertEquals("capture stage", k < captures,
+                             Move.isCapture(staged[k]));
+                assertTrue("staged move legal", b.isLegal(staged[k]));
+                assertFalse("capture flag checked",
+                            b.isLegal(staged[k] ^ (1 << 12)));
+                if (k >= captures) {
+                    Piece side = b.turn();
+                    b.makeMove(staged[k]);
+                    boolean joins = b.piecesContiguous(side);
+                    b.retract();
+                    assertEquals("quiet move joins", joins,
+                                 b.quietMoveJoins(staged[k]));
+                }
+            }
+            b.makeMove(moves.get(r.nextInt(moves.size())));
+        }
+        assertTrue("winning quiet move", new Board(SearchTest.NEAR_WIN, WP)
+                   .quietMoveJoins(mv("d3-d2").pack()));
+        assertEquals("initial moves", 36, new Board().perft(1));
+        assertEquals("initial three-move sequences", 44952,
+                     new Board().perft(3));
+    }
+
+    /** Check that move generation handles lines holding eight
+     *  pieces, where the move length reaches the board size. */
+    @Test
+    public void testFullLines() {
+        for (Piece side : new Piece[] { WP, BP }) {
+            Board b = new Board(FULL_LINES, side);
+            int count = 0;
+            for (Square from : Square.ALL_SQUARES) {
+                for (Square to : Square.ALL_SQUARES) {
+                    count += b.isLegal(from, to) ? 1 : 0;
+                }
+            }
+            List<Move> moves = b.legalMoves();
+            assertEquals("number of legal moves", count, moves.size());
+            for (Move m : moves) {
+                assertTrue("generated move legal", b.isLegal(m));
+            }
+        }
+    }
+
+    /** Return the number of bytes allocated so far by the current
+     *  thread. */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Benchmark: generating, making, and retracting moves with packed
+     *  int moves allocates nothing per node.  The only allocation is
+     *  perft's per-call move buffers. */
+    @Test
+    public void testMoveGenerationAllocation() {
+        Board b = new Board();
+        for (int i = 0; i < 10; i += 1) {
+            b.perft(3);
+        }
+        long before = allocatedBytes();
+        long nodes = b.perft(3);
+        long bytes = allocatedBytes() - before;
+        assertTrue("allocated " + bytes + " bytes over " + nodes + " nodes",
+                   bytes < 8 * 4 * Board.MAX_MOVES);
+    }
+
 }
@@ -0,0 +1,88 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A small direct-mapped cache of position values, indexed by position
+ *  hash key (see Board.hashKey).  A value stored for one key simply
+ *  replaces whatever occupied its slot.  Like TranspositionTable, it
+ *  is a pair of primitive arrays whose length is a power of two.  It is
+ *  not safe to share between threads; each Searcher has its own.
+ *  @author Ryan Van de Water
+ */
+class EvalCache {
+
+    /** A cache with 2**LOGSIZE entries. */
+    EvalCache(int logSize) {
+        _keys = new long[1 << logSize];
+        _values = new int[1 << logSize];
+        _mask = (1 << logSize) - 1;
+        clear();
+    }
+
+    /** Remove all entries and reset the statistics. */
+    void clear() {
+        Arrays.fill(_keys, EMPTY);
+        _hits = _misses = 0;
+    }
+
+    /** Return true iff there is a value for the position with hash KEY,
+     *  which value() then returns.  Counts a hit or miss. */
+    boolean probe(long key) {
+        int k = (int) key & _mask;
+        if (_keys[k] == key) {
+            _value = _values[k];
+            _hits += 1;
+            return true;
+        } else {
+            _misses += 1;
+            return false;
+        }
+    }
+
+    /** Return the value found by the last successful probe. */
+    int value() {
+        return _value;
+    }
+
+    /** Record that the position with hash KEY has value VALUE. */
+    void store(long key, int value) {
+        int k = (int) key & _mask;
+        _keys[k] = key;
+        _values[k] = value;
+    }
+
+    /** Return the number of probes that found a value since the last
+     *  clear or resetStatistics. */
+    long hits() {
+        return _hits;
+    }
+
+    /** Return the number of probes that failed since the last clear or
+     *  resetStatistics. */
+    long misses() {
+        return _misses;
+    }
+
+    /** Reset the counts of hits and misses. */
+    void resetStatistics() {
+        _hits = _misses = 0;
+    }
+
+    /** Key marking an empty slot.  Hash keys of real positions are
+     *  random 64-bit numbers, so one equal to this is vanishingly
+     *  unlikely. */
+    private static final long EMPTY = 0L;
+
+    /** Hash keys of the cached positions. */
+    private final long[] _keys;
+    /** Values of the positions in _keys. */
+    private final int[] _values;
+    /** Mask selecting a slot from a hash key. */
+    private final int _mask;
+    /** The value found by the last successful probe. */
+    private int _value;
+    /** Statistics. */
+    private long _hits, _misses;
+}
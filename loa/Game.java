@@ -21,6 +21,10 @@ class Game {
 
     /** Number of milliseconds in 1 second. */
     static final int MILLISEC = 1000;
+    /** Default limit on node expansions for the solve command. */
+    static final int DEFAULT_SOLVE_EXPANSIONS = 100000;
+    /** Most nodes in the solve command's search tree. */
+    static final int SOLVE_NODES = 1 << 22;
     /** Name of help text resource. */
     static final String HELP_FILE = "loa/HelpText.txt";
 
@@ -101,14 +105,18 @@ class Game {
         if (command.matches()) {
             switch (command.group(1).toLowerCase()) {
             case "undo":
-                _board.retract();
-                _board.retract();
+                for (int i = 0; i < 2 && _board.movesMade() > 0; i += 1) {
+                    _board.retract();
+                }
+                boardChanged();
                 break;
             case "#":
                 break;
             case "new":
                 _board.clear();
                 _playing = true;
+                _white.newGame();
+                _black.newGame();
                 break;
             case "dump":
                 System.out.printf("%s%n", _board);
@@ -132,6 +140,9 @@ class Game {
             case "limit":
                 limitCommand(command.group(2));
                 break;
+            case "solve":
+                solveCommand(command.group(2));
+                break;
             case "?": case "help":
                 help();
                 break;
@@ -173,9 +184,11 @@ class Game {
     private void manualCommand(String player) {
         switch (player) {
         case "white":
+            _white.replaced();
             _white = _manualPlayerTemplate.create(WP, this);
             break;
         case "black":
+            _black.replaced();
             _black = _manualPlayerTemplate.create(BP, this);
             break;
         default:
@@ -187,9 +200,11 @@ class Game {
     private void autoCommand(String player) {
         switch (player) {
         case "white":
+            _white.replaced();
             _white = _autoPlayerTemplate.create(WP, this);
             break;
         case "black":
+            _black.replaced();
             _black = _autoPlayerTemplate.create(BP, this);
             break;
         default:
@@ -216,6 +231,7 @@ class Game {
                 error("invalid next player: -");
             } else {
                 _board.set(sq(S), p, next);
+                boardChanged();
             }
         } catch (IllegalArgumentException excp) {
             error("invalid arguments to set: set %s %s %s%n", S, content,
@@ -223,6 +239,13 @@ class Game {
         }
     }
 
+    /** Tell both players that the board has changed other than by a
+     *  move. */
+    private void boardChanged() {
+        _white.boardChanged();
+        _black.boardChanged();
+    }
+
     /** Set the corrent move limit according to the numeral in LIMIT.  LIMIT
      *  must be a valid numeral that is greater than the current number of
      *  moves by either player in the current game. */
@@ -234,6 +257,57 @@ class Game {
         }
     }
 
+    /** Try to prove a win for either side from the current position with
+     *  proof-number search, expanding at most the number of nodes given
+     *  by the numeral EXPANSIONS (or DEFAULT_SOLVE_EXPANSIONS if it is
+     *  empty), which must be positive, for each side, and print the
+     *  result and winning line. */
+    private void solveCommand(String expansions) {
+        int limit;
+        try {
+            limit = expansions.isEmpty() ? DEFAULT_SOLVE_EXPANSIONS
+                : Integer.parseInt(expansions);
+        } catch (NumberFormatException excp) {
+            throw new IllegalArgumentException("badly formed numeral");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        if (_board.gameOver()) {
+            error("game is over%n");
+            return;
+        }
+        ProofNumberSearch solver = solver(limit);
+        int result = solver.solve(_board, limit);
+        Piece mover = _board.turn();
+        if (result == ProofNumberSearch.UNKNOWN) {
+            System.out.printf("No forced win found (%d expansions).%n",
+                              solver.expansions());
+        } else {
+            Piece winner =
+                result == ProofNumberSearch.WIN ? mover : mover.opposite();
+            StringBuilder line = new StringBuilder();
+            for (Move move : solver.line()) {
+                line.append(' ').append(move);
+            }
+            System.out.printf("%s wins:%s%n", winner.fullName(), line);
+        }
+    }
+
+    /** Return a proof-number solver whose pool is large enough for
+     *  EXPANSIONS node expansions, each of which adds at most
+     *  Board.MAX_MOVES nodes, but holds at most SOLVE_NODES nodes.
+     *  Reuses the last solver if its pool is large enough. */
+    private ProofNumberSearch solver(int expansions) {
+        int nodes = (int) Math.max(1, Math.min(SOLVE_NODES,
+            (long) expansions * Board.MAX_MOVES + 1));
+        if (nodes > _solverNodes) {
+            _solver = new ProofNumberSearch(nodes);
+            _solverNodes = nodes;
+        }
+        return _solver;
+    }
+
     /** Perform the move designated by LINE, if a valid move.  Return
      *  true iff LINE has the syntax of a move. */
     private boolean processMove(String line) {
@@ -246,6 +320,8 @@ class Game {
             error("illegal move: %s%n", line);
         } else {
             _board.makeMove(move);
+            _white.moveMade(move);
+            _black.moveMade(move);
         }
         return true;
     }
@@ -349,6 +425,12 @@ class Game {
     /** Reporter for messages and errors. */
     private Reporter _reporter;
 
+    /** Solver for the solve command, created on first use. */
+    private ProofNumberSearch _solver;
+
+    /** Number of nodes in _solver's pool, or 0 if there is none. */
+    private int _solverNodes;
+
     /** If true, command errors cause termination with error exit
      *  code. */
     private boolean _strict;
@@ -4,16 +4,27 @@ package loa;
 
 
 import static loa.Piece.*;
+import static loa.Utils.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
 /** An automated Player.
  *  @author Ryan Van de Water
  */
 class MachinePlayer extends Player {
 
     /** A position-score magnitude indicating a win (for white if positive,
-     *  black if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
+     *  black if negative).  Searches subtract the distance in plies to
+     *  the win, so that quicker wins score higher. */
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
 
@@ -36,10 +47,50 @@ class MachinePlayer extends Player {
         Move choice;
         assert side() == getGame().getBoard().turn();
         choice = searchForMove();
+        if (choice == null) {
+            getGame().reportNote("%s cannot move.", side().fullName());
+            return "manual " + side().fullName();
+        }
         getGame().reportMove(choice);
         return choice.toString();
     }
 
+    /** If MOVE was my opponent's, stop pondering.  If it was mine, and
+     *  pondering is enabled, start pondering the resulting position. */
+    @Override
+    void moveMade(Move move) {
+        Board board = getBoard();
+        if (board.turn() == side()) {
+            stopPondering();
+        } else if (_ponder && _splitDepth == 0 && !board.gameOver()) {
+            startPondering(new Board(board));
+        }
+    }
+
+    /** Stop pondering, since the position pondered may no longer arise. */
+    @Override
+    void boardChanged() {
+        stopPondering();
+    }
+
+    /** Stop pondering, so as not to compete with my replacement. */
+    @Override
+    void replaced() {
+        stopPondering();
+    }
+
+    /** Stop pondering, and start my game clock afresh. */
+    @Override
+    void newGame() {
+        super.newGame();
+        _timeUsed = 0;
+    }
+
+    /** Return true iff I am pondering. */
+    boolean pondering() {
+        return _pondering != null;
+    }
+
     @Override
     Player create(Piece piece, Game game) {
         return new MachinePlayer(piece, game);
@@ -56,222 +107,378 @@ class MachinePlayer extends Player {
         return holder;
     }
 
-    /** Return a move after searching the game tree to DEPTH>0 moves
-     *  from the current position. Assumes the game is not over. */
+    /** Return a move for the current position: one that wins at once
+     *  if there is one, else a move from the opening book if it has
+     *  any, else the first move of a forced win if the solver finds
+     *  one, else the result of searching the game tree, using the
+     *  root-splitting search if a fixed search depth has been set, and
+     *  otherwise the shared-table search.  Returns null if I have no
+     *  legal move.  Assumes the game is not over. */
     private Move searchForMove() {
+        stopPondering();
         Board work = new Board(getBoard());
-        int value;
         assert side() == work.turn();
-        _foundMove = null;
-        if (side() == WP) {
-            value = findMove(work, chooseDepth(), true, 1, -INFTY, INFTY);
-        } else {
-            value = findMove(work, chooseDepth(), true, -1, -INFTY, INFTY);
-        }
-        return _foundMove;
-    }
-
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _foundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value > ALPHA if SENSE==1,
-     *  and minimal value or value < BETA if SENSE==-1. Searches up to
-     *  DEPTH levels.  Searching at level 0 simply returns a static estimate
-     *  of the board value and does not set _foundMove. If the game is over
-     *  on BOARD, does not set _foundMove. */
-    private int findMove(Board board, int depth, boolean saveMove,
-                         int sense, int alpha, int beta) {
-        holder = heuristicFunction(board, sense);
-        if (sense == 1) {
-            return Math.max(findMax(board, sense, 1, alpha, beta),
-                    findMax(board, sense, depth, alpha, beta));
-        } else {
-            return Math.min(findMin(board, sense, 1, alpha, beta),
-                    findMin(board, sense, depth, alpha, beta));
-        }
-    }
-
-    /** This function is called when the maximizing player is
-     *  searching for a move.
-     * @param board - the current position.
-     * @param sense - the player we are searching for.
-     * @param depth - the level at which to search at
-     * @param alpha - the current value for alpha
-     * @param beta - the current value for beta
-     * @return the value of the optimal move for this player. */
-    private int findMax(Board board, int sense, int depth,
-                        int alpha, int beta) {
-        if (depth == 0 || board.gameOver()) {
-            return oneDepthMax(board, sense, alpha, beta);
-        } else {
-            int optimal = -INFTY;
-            for (Move m : board.legalMoves()) {
-                board.makeMove(m);
-                int response = findMin(board, sense, depth - 1, alpha, beta);
-                board.retract();
-                if (response >= optimal) {
-                    optimal = response;
-                    m.setValue(optimal);
-                    alpha = Math.max(alpha, response);
-                    if (sense == 1 && _foundMove == null) {
-                        _foundMove = m;
-                    } else if (sense == 1 && m.value() > _foundMove.value()) {
-                        _foundMove = m;
-                    }
-                } else {
-                    alpha = Math.max(alpha, optimal);
-                }
-                if (beta <= alpha) {
-                    break;
-                }
+        long seed = getGame().randInt(Integer.MAX_VALUE);
+        if (_randomEvaluation) {
+            holder = heuristicFunction(work, side() == WP ? 1 : -1,
+                                       new Random(seed));
+        }
+        int win = winningMove(work);
+        int bookMove =
+            _book == null ? Move.NO_MOVE : _book.move(work, new Random(seed));
+        if (win != Move.NO_MOVE) {
+            debug(1, "%s wins at once", Move.mv(win));
+            return Move.mv(win);
+        } else if (bookMove != Move.NO_MOVE) {
+            debug(1, "%s from book", Move.mv(bookMove));
+            return Move.mv(bookMove);
+        }
+        int solution = solve(work);
+        if (solution != Move.NO_MOVE) {
+            return Move.mv(solution);
+        }
+        int found = _splitDepth > 0 ? searchSplit(work, _splitDepth, seed)
+            : searchShared(work, seed);
+        return found == Move.NO_MOVE ? null : Move.mv(found);
+    }
+
+    /** Return a move (packed as by Move.pack) that wins the game at
+     *  once for the side to move in BOARD, or Move.NO_MOVE if there is
+     *  none.  Leaves BOARD unchanged. */
+    private int winningMove(Board board) {
+        Piece side = board.turn();
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(moves, 0);
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            boolean wins = board.winner() == side;
+            board.retract();
+            if (wins) {
+                return moves[i];
             }
-            return optimal;
-        }
-    }
-
-    /** This function is called when the minimizing player is
-     * searching for a move.
-     * @param board - the current position.
-     * @param sense - the player we are searching for.
-     * @param depth - the level at which to search at
-     * @param alpha - the current value for alpha
-     * @param beta - the current value for beta
-     * @return the value of the optimal move for this player. */
-    private int findMin(Board board, int sense, int depth,
-                        int alpha, int beta) {
-        if (depth == 0 || board.gameOver()) {
-            return oneDepthMin(board, sense, alpha, beta);
-        } else {
-            int optimal = INFTY;
-            for (Move m : board.legalMoves()) {
-                board.makeMove(m);
-                int response = findMax(board, sense, depth - 1, alpha, beta);
-                board.retract();
-                if (response <= optimal) {
-                    optimal = response;
-                    m.setValue(optimal);
-                    beta = Math.min(beta, response);
-                    if (sense == -1 && _foundMove == null) {
-                        _foundMove = m;
-                    } else if (sense == -1 && m.value() < _foundMove.value()) {
-                        _foundMove = m;
-                    }
-                } else {
-                    beta = Math.min(beta, optimal);
-                }
-                if (beta <= alpha) {
-                    break;
-                }
+        }
+        return Move.NO_MOVE;
+    }
+
+    /** Return the first move (packed as by Move.pack) of a forced win
+     *  for the side to move in BOARD, if BOARD has few enough pieces
+     *  for the proof-number solver to be worth trying and it proves a
+     *  win within SOLVER_EXPANSIONS expansions.  Otherwise, return
+     *  Move.NO_MOVE.  The time taken counts against my game clock.
+     *  Leaves BOARD unchanged. */
+    private int solve(Board board) {
+        if (board.pieceCount(WP) + board.pieceCount(BP) > SOLVER_PIECES) {
+            return Move.NO_MOVE;
+        }
+        if (_solver == null) {
+            _solver = new ProofNumberSearch(SOLVER_NODES);
+        }
+        long start = System.currentTimeMillis();
+        boolean win = _solver.solveWin(board, SOLVER_EXPANSIONS);
+        _timeUsed += System.currentTimeMillis() - start;
+        debug(1, "solver: %s after %d expansions %s",
+              win ? "win" : "unknown", _solver.expansions(),
+              _solver.line());
+        return win ? _solver.line().get(0).pack() : Move.NO_MOVE;
+    }
+
+    /** Return a move for the side to move in WORK after searching the
+     *  game tree to successively greater depths, until the time allotted
+     *  to this move runs out.  The search runs on _threads threads that
+     *  share my transposition table; returns the best move (packed as by
+     *  Move.pack) found by the deepest completed search of the main
+     *  one, or Move.NO_MOVE if there are no legal moves.  The searchers
+     *  draw their random numbers from generators seeded from SEED. */
+    private int searchShared(Board work, long seed) {
+        createSearchers();
+        _table.newSearch();
+        long start = System.currentTimeMillis();
+        long budget = timeBudget();
+        _stopRequested = false;
+        Future<?>[] helpers = new Future<?>[_searchers.length];
+        for (int i = 1; i < _searchers.length; i += 1) {
+            Searcher helper = _searchers[i];
+            long helperSeed = seed + i;
+            helpers[i] = _helpers.submit(() ->
+                helper.search(work, _table, start, budget, helperSeed));
+        }
+        int bestMove =
+            _searchers[0].search(work, _table, start, budget, seed);
+        _stopRequested = true;
+        long nodes = _searchers[0].nodes();
+        EvalCache cache = _searchers[0].evalCache();
+        debug(1, "%d%% of %d cutoffs on first move; evaluation cache"
+              + " %d hits, %d misses (%d%%)",
+              100 * _searchers[0].firstCutoffs()
+              / Math.max(1, _searchers[0].cutoffs()),
+              _searchers[0].cutoffs(), cache.hits(), cache.misses(),
+              100 * cache.hits()
+              / Math.max(1, cache.hits() + cache.misses()));
+        for (int i = 1; i < _searchers.length; i += 1) {
+            await(helpers[i]);
+            nodes += _searchers[i].nodes();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        debug(1, "%d nodes on %d threads (%d ms, %d nodes/s)", nodes,
+              _searchers.length, elapsed,
+              nodes * Game.MILLISEC / Math.max(1, elapsed));
+        _timeUsed += elapsed;
+        return bestMove;
+    }
+
+    /** Create my transposition table, my searchers, and the threads on
+     *  which my helper searchers run, if I have not already done so. */
+    private void createSearchers() {
+        if (_table == null) {
+            _table = new TranspositionTable(_tableBytes);
+            _searchers = new Searcher[_threads];
+            for (int i = 0; i < _threads; i += 1) {
+                _searchers[i] = new Searcher(this, i);
+            }
+            if (_threads > 1) {
+                _helpers = daemonThreads(_threads - 1);
             }
-            return optimal;
         }
     }
 
-    /** This function looks at all the possible moves and
-     * ranks them according to the heuristic function
-     * at the bottom of our tree.
-     * @param board - the current position
-     * @param sense - who is playing
-     * @param alpha - the value of alpha at this position
-     * @param beta - the value of beta at this position
-     * @return the value of the optimal move at the bottom
-     * of the tree
-     */
-    private int oneDepthMax(Board board, int sense, int alpha, int beta) {
-        if (board.gameOver()) {
-            return heuristicFunction(board, sense);
-        } else {
-            int bestSoFar = -INFTY;
-            int origDist = averageDist(board, WP);
-            for (Move m : board.legalMoves()) {
-                board.makeMove(m);
-                int score;
-                int nowDist = averageDist(board, WP);
-                if (nowDist < origDist) {
-                    score = heuristicFunction(board, sense)
-                            + zone2Rand[getGame().randInt(s)];
-                } else {
-                    score = heuristicFunction(board, sense);
-                }
-                if (score >= bestSoFar) {
-                    bestSoFar = score;
-                    alpha = Math.max(alpha, score);
-                } else {
-                    alpha = Math.max(alpha, bestSoFar);
-                }
-                board.retract();
-                if (beta <= alpha) {
-                    break;
-                }
+    /** Return a pool of N daemon threads, which do not keep the program
+     *  running once the game is over. */
+    private static ExecutorService daemonThreads(int n) {
+        return Executors.newFixedThreadPool(n, r -> {
+            Thread thread = new Thread(r, "loa-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Wait for TASK, a search, to finish. */
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new Error("search thread failed", excp.getCause());
+        }
+    }
+
+    /** Start searching WORK, a position in which my opponent is to move,
+     *  in the background on all my searchers, so as to fill my
+     *  transposition table with the values of the positions after each
+     *  of its replies, ready for my next search.  The search stops when
+     *  stopPondering is called or after my per-move time limit, and its
+     *  time is not charged to my game clock. */
+    private void startPondering(Board work) {
+        stopPondering();
+        createSearchers();
+        if (_ponderThread == null) {
+            _ponderThread = daemonThreads(1);
+        }
+        _table.newSearch();
+        _stopRequested = false;
+        debug(1, "pondering");
+        long start = System.currentTimeMillis(), seed = work.hashKey();
+        _pondering = new Future<?>[_searchers.length];
+        for (int i = 0; i < _searchers.length; i += 1) {
+            Searcher searcher = _searchers[i];
+            long searcherSeed = seed + i;
+            _pondering[i] = (i == 0 ? _ponderThread : _helpers).submit(() ->
+                searcher.search(work, _table, start, _moveMillis,
+                                searcherSeed));
+        }
+    }
+
+    /** Stop the search started by startPondering, if any, and wait for
+     *  its threads to finish. */
+    private void stopPondering() {
+        if (_pondering != null) {
+            _stopRequested = true;
+            for (Future<?> task : _pondering) {
+                await(task);
             }
-            return bestSoFar;
+            _pondering = null;
+            debug(1, "pondering stopped");
         }
     }
 
-    /** Returns the value of the moves at the bottom of the tree for
-     * the minimizing player.
-     * @param board - current position
-     * @param sense - indicates who's playing
-     * @param alpha - score for the board, seeking to maximize
-     * @param beta - score for the board, seeking to minimize
-     * @return the best value after making the legal moves at
-     * depth 0.
-     */
-    private int oneDepthMin(Board board, int sense, int alpha, int beta) {
-        if (board.gameOver()) {
-            return heuristicFunction(board, sense);
-        } else {
-            int bestSoFar = INFTY;
-            int origDist = averageDist(board, BP);
-            for (Move m : board.legalMoves()) {
-                board.makeMove(m);
-                int score;
-                int nowDist = averageDist(board, BP);
-                if (nowDist < origDist) {
-                    score = heuristicFunction(board, sense)
-                            - zone2Rand[getGame().randInt(s)];
-                } else {
-                    score = heuristicFunction(board, sense);
-                }
-                if (score <= bestSoFar) {
-                    bestSoFar = score;
-                    beta = Math.min(beta, score);
-                } else {
-                    beta = Math.min(beta, bestSoFar);
-                }
-                board.retract();
-                if (beta <= alpha) {
-                    break;
+    /** Return a move for the side to move in ROOT after searching it to
+     *  exactly DEPTH plies, with the root moves divided among _threads
+     *  threads in the Young Brothers Wait fashion: the first move is
+     *  searched alone, and its value then serves as the null window for
+     *  the parallel searches of the others, which are searched again
+     *  with a wider window only if they beat it.  Does not use the
+     *  transposition table, and seeds the random numbers for each root
+     *  move from SEED and the move, so that the result depends only on
+     *  ROOT, DEPTH, and SEED, regardless of the number of threads or
+     *  their timing.  Returns the move packed as by Move.pack, or
+     *  Move.NO_MOVE if there are no legal moves.  Assumes the game is
+     *  not over. */
+    int searchSplit(Board root, int depth, long seed) {
+        if (_splitPool == null) {
+            _splitPool = new ForkJoinPool(_threads);
+        }
+        long start = System.currentTimeMillis();
+        _stopRequested = false;
+        _splitNodes.reset();
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = root.generateMoves(moves, 0);
+        if (n == 0) {
+            return Move.NO_MOVE;
+        }
+        int bestMove = moves[0];
+        int bestValue =
+            splitSearcher().searchMove(root, moves[0], depth, -INFTY, INFTY,
+                                       seed);
+        _splitNodes.add(splitSearcher().nodes());
+        int alpha = bestValue;
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 1; i < n; i += 1) {
+            int move = moves[i];
+            tasks.add(() -> {
+                Searcher searcher = splitSearcher();
+                int value = searcher.searchMove(root, move, depth,
+                                                alpha, alpha + 1, seed);
+                _splitNodes.add(searcher.nodes());
+                if (value > alpha) {
+                    value = searcher.searchMove(root, move, depth,
+                                                alpha, INFTY, seed);
+                    _splitNodes.add(searcher.nodes());
                 }
+                return value;
+            });
+        }
+        List<Future<Integer>> values = _splitPool.invokeAll(tasks);
+        for (int i = 1; i < n; i += 1) {
+            int value;
+            try {
+                value = values.get(i - 1).get();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException excp) {
+                throw new Error("search thread failed", excp.getCause());
             }
-            return bestSoFar;
+            if (value > bestValue) {
+                bestMove = moves[i];
+                bestValue = value;
+            }
+        }
+        debug(1, "depth %d: %s value %d (%d nodes, %d ms)", depth,
+              Move.mv(bestMove), bestValue, _splitNodes.sum(),
+              System.currentTimeMillis() - start);
+        return bestMove;
+    }
+
+    /** Return the Searcher belonging to the current thread for use by
+     *  searchSplit. */
+    private Searcher splitSearcher() {
+        Searcher searcher = _splitSearchers.get();
+        if (searcher == null) {
+            searcher = new Searcher(this, 0);
+            _splitSearchers.set(searcher);
         }
+        return searcher;
+    }
+
+    /** Return the time in milliseconds to allot to the current move:
+     *  an equal share of what is left on my game clock among the moves
+     *  I expect still to make, but no more than the per-move limit. */
+    private long timeBudget() {
+        long remaining = Math.max(0, _gameMillis - _timeUsed);
+        return Math.max(MIN_MOVE_MILLIS,
+                        Math.min(_moveMillis, remaining / MOVES_TO_GO));
+    }
+
+    /** Return true iff my searchers should abandon their current
+     *  search because the main one has finished. */
+    boolean stopRequested() {
+        return _stopRequested;
+    }
+
+    /** Return true iff I use the original, random evaluation. */
+    boolean randomEvaluation() {
+        return _randomEvaluation;
+    }
+
+    /** Return true iff my searches use null-move pruning. */
+    boolean nullMovePruning() {
+        return _nullMovePruning;
     }
 
-    /** Sets the search depth.
-     * @return the max search depth we want to explore */
-    private int chooseDepth() {
-        return 2;
+    /** Return true iff my searches use futility pruning. */
+    boolean futilityPruning() {
+        return _futilityPruning;
+    }
+
+    /** Return the most by which my searches perturb the value of each
+     *  root move at random. */
+    int noise() {
+        return _noise;
     }
 
     /** A function that uses a variety of metrics to place a
      * numeric score to the position of the board.
      * @param board - the position of the board.
      * @param sense - who's playing at the moment.
+     * @param random - the source of the score's random component.
      * @return average distances between player's pieces
      */
-    private int heuristicFunction(Board board, int sense) {
-        if (sense == 1) {
-            return whitePoints(board);
+    int heuristicFunction(Board board, int sense, Random random) {
+        if (!_randomEvaluation) {
+            return evaluate(board);
+        } else if (sense == 1) {
+            return whitePoints(board, random);
         } else {
-            return blackPoints(board);
+            return blackPoints(board, random);
+        }
+    }
+
+    /** Return the deterministic value of BOARD, positive if it favors
+     *  white.  Each side is scored by the same terms as in whitePoints
+     *  and blackPoints, but with each random award replaced by the
+     *  middle of its range, the awards for piece placement being
+     *  totaled by BOARD (see Board.PLACEMENT).  The terms for region
+     *  sizes are replaced by terms for the number of regions, as
+     *  estimated in constant time by Board.eulerNumber: a bonus for a
+     *  single region (where the largest region holds every piece), a
+     *  smaller one for two, and a penalty for more than three.  Each
+     *  side also loses points in proportion to the mean squared
+     *  distance of its pieces from their center of mass (see
+     *  Board.spread), favoring compact positions.  There is no
+     *  comparison with the value at the root, so a position's value
+     *  does not depend on the search it is found in. */
+    int evaluate(Board board) {
+        if (board.gameOver()) {
+            Piece winner = board.winner();
+            return winner == WP ? WINNING_VALUE
+                : winner == BP ? -WINNING_VALUE : 0;
+        }
+        return sidePoints(board, WP) - sidePoints(board, BP);
+    }
+
+    /** Return the points earned by SIDE on BOARD under the
+     *  deterministic evaluation. */
+    private int sidePoints(Board board, Piece side) {
+        int pieces = board.pieceCount(side);
+        int points = board.placement(side)
+            - CONCENTRATION_WEIGHT * board.spread(side) / (pieces * pieces);
+        int regions = Math.max(1, board.eulerNumber(side));
+        if (regions == 1) {
+            points += ZONE3_VALUE;
+        } else if (regions == 2) {
+            points += ZONE2_VALUE;
+        } else if (regions > 3) {
+            points -= 100;
         }
+        return points;
     }
 
     /** Get the white point total.
      * @param board - the current position
+     * @param random - the source of the score's random component
      * @return the white point total.
      */
-    int whitePoints(Board board) {
+    int whitePoints(Board board, Random random) {
         ArrayList<Square> wTeam = board.getWhiteSquares();
         List<Integer> wReg = board.getRegionSizes(WP);
         int sumWReg = 0;
@@ -283,18 +490,18 @@ class MachinePlayer extends Player {
         }
         if (board.gameOver()) {
             if (board.winner().equals(WP)) {
-                return INFTY;
+                return WINNING_VALUE;
             } else {
-                return -INFTY;
+                return -WINNING_VALUE;
             }
         }
         for (Square sq : wTeam) {
             if (sq.col() >= 1 && sq.col() <= 6) {
-                pointTotal += zone1Rand[getGame().randInt(s)];
+                pointTotal += zone1Rand[random.nextInt(s)];
                 if (sq.col() >= 2 && sq.col() <= 5) {
-                    pointTotal += zone2Rand[getGame().randInt(s)];
+                    pointTotal += zone2Rand[random.nextInt(s)];
                     if (sq.row() >= 2 && sq.row() <= 4) {
-                        pointTotal += zone3Rand[getGame().randInt(s)];
+                        pointTotal += zone3Rand[random.nextInt(s)];
                     }
                 }
             } else {
@@ -311,14 +518,14 @@ class MachinePlayer extends Player {
             if (wReg.size() > 3) {
                 pointTotal -= medium;
             } else {
-                pointTotal += zone3Rand[getGame().randInt(s)];
+                pointTotal += zone3Rand[random.nextInt(s)];
             }
         }
         if (wReg.size() == 2) {
-            pointTotal += zone2Rand[getGame().randInt(s)];
+            pointTotal += zone2Rand[random.nextInt(s)];
         }
         if (pointTotal > holder) {
-            if (getGame().randInt(11) >= 5) {
+            if (random.nextInt(11) >= 5) {
                 pointTotal += medium;
             } else {
                 pointTotal += (medium / 2);
@@ -329,9 +536,10 @@ class MachinePlayer extends Player {
 
     /** Return the points for the black team.
      * @param board - the current position
+     * @param random - the source of the score's random component
      * @return the black team point total
      */
-    int blackPoints(Board board) {
+    int blackPoints(Board board, Random random) {
         ArrayList<Square> bTeam = board.getBlackSquares();
         List<Integer> bReg = board.getRegionSizes(BP);
         int sumBReg = 0;
@@ -343,18 +551,18 @@ class MachinePlayer extends Player {
         }
         if (board.gameOver()) {
             if (board.winner().equals(BP)) {
-                return -INFTY;
+                return -WINNING_VALUE;
             } else {
-                return INFTY;
+                return WINNING_VALUE;
             }
         }
         for (Square sq : bTeam) {
             if (sq.row() >= 1 && sq.row() <= 6) {
-                pointTotal -= zone1Rand[getGame().randInt(s)];
+                pointTotal -= zone1Rand[random.nextInt(s)];
                 if (sq.row() >= 2 && sq.row() <= 5) {
-                    pointTotal -= zone2Rand[getGame().randInt(s)];
+                    pointTotal -= zone2Rand[random.nextInt(s)];
                     if (sq.col() >= 2 && sq.col() <= 4) {
-                        pointTotal -= zone3Rand[getGame().randInt(s)];
+                        pointTotal -= zone3Rand[random.nextInt(s)];
                     }
                 }
             } else {
@@ -371,14 +579,14 @@ class MachinePlayer extends Player {
             if (bReg.size() > 3) {
                 pointTotal += medium;
             } else {
-                pointTotal -= zone3Rand[getGame().randInt(s)];
+                pointTotal -= zone3Rand[random.nextInt(s)];
             }
         }
         if (bReg.size() == 2) {
-            pointTotal -= zone2Rand[getGame().randInt(s)];
+            pointTotal -= zone2Rand[random.nextInt(s)];
         }
         if (pointTotal < holder) {
-            if (getGame().randInt(11) >= 5) {
+            if (random.nextInt(11) >= 5) {
                 pointTotal -= medium;
             } else {
                 pointTotal -= (medium / 2);
@@ -387,43 +595,157 @@ class MachinePlayer extends Player {
         return pointTotal;
     }
 
-    /** Returns the average distance between pieces on the
-     * board.
-     * @param board - position
-     * @param p - indicates the player playing
-     * @return average distance between the pieces
-     */
-    int averageDist(Board board, Piece p) {
-        ArrayList<Square> wTeam = board.getWhiteSq();
-        ArrayList<Square> bTeam = board.getBlackSq();
-        int sumDists = 0;
-        int numDists = 0;
-        if (p.equals(WP)) {
-            for (Square w : wTeam) {
-                for (Square other : wTeam) {
-                    if (w.equals(other)) {
-                        continue;
-                    }
-                    sumDists += w.distance(other);
-                    numDists += 1;
-                }
-            }
-        } else {
-            for (Square b : bTeam) {
-                for (Square other : bTeam) {
-                    if (b.equals(other)) {
-                        continue;
-                    }
-                    sumDists += b.distance(other);
-                    numDists += 1;
-                }
-            }
-        }
-        return sumDists / numDists;
+    /** Default size of the transposition table, in megabytes. */
+    static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    /** Size of transposition tables for new players, in bytes. */
+    private static long _tableBytes = DEFAULT_TABLE_MEGABYTES << 20;
+
+    /** Set the size of the transposition table of each subsequently
+     *  created MachinePlayer to MEGABYTES megabytes. */
+    static void setTableSize(int megabytes) {
+        _tableBytes = (long) megabytes << 20;
+    }
+
+    /** My transposition table, created on first use. */
+    private TranspositionTable _table;
+
+    /** Depth of the root-splitting search for new players, or 0 to
+     *  use the shared-table search. */
+    private static int _splitDepth;
+
+    /** Have each subsequently created MachinePlayer use the deterministic
+     *  root-splitting search to DEPTH plies, or the shared-table search
+     *  if DEPTH is 0. */
+    static void setSplitDepth(int depth) {
+        _splitDepth = Math.max(0, depth);
+    }
+
+    /** True iff new players use the original, random evaluation rather
+     *  than the deterministic one. */
+    private static boolean _randomEvaluation;
+
+    /** Have subsequently created MachinePlayers use the random
+     *  evaluation iff RANDOM. */
+    static void setRandomEvaluation(boolean random) {
+        _randomEvaluation = random;
+    }
+
+    /** Most random noise added to each root move by new players. */
+    private static int _noise;
+
+    /** Have subsequently created MachinePlayers add up to NOISE points
+     *  at random to the value of each move at the root of a search. */
+    static void setNoise(int noise) {
+        _noise = Math.max(0, noise);
+    }
+
+    /** True iff new players use null-move pruning. */
+    private static boolean _nullMovePruning = true;
+    /** True iff new players use futility pruning. */
+    private static boolean _futilityPruning = true;
+
+    /** Have subsequently created MachinePlayers use null-move pruning
+     *  iff NULLMOVE and futility pruning iff FUTILITY. */
+    static void setPruning(boolean nullMove, boolean futility) {
+        _nullMovePruning = nullMove;
+        _futilityPruning = futility;
+    }
+
+    /** The opening book, or null if there is none. */
+    private static OpeningBook _book;
+
+    /** Have all MachinePlayers play from BOOK (if not null) when it has
+     *  moves for the current position, rather than searching. */
+    static void setBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /** True iff new players search during their opponents' turns. */
+    private static boolean _ponder;
+
+    /** Have subsequently created MachinePlayers ponder (search while
+     *  their opponents choose moves) iff PONDER. */
+    static void setPonder(boolean ponder) {
+        _ponder = ponder;
+    }
+
+    /** Number of search threads for new players. */
+    private static int _threads = Runtime.getRuntime().availableProcessors();
+
+    /** Have each subsequently created MachinePlayer search on THREADS
+     *  threads. */
+    static void setThreads(int threads) {
+        _threads = Math.max(1, threads);
+    }
+
+    /** Default limit on the time for one move, in seconds. */
+    static final double DEFAULT_MOVE_SECONDS = 10.0;
+    /** Default limit on the total time for one side's moves in a game, in
+     *  seconds.  This is half the testing harness's limit for a whole
+     *  game, so that two automated players in one program fit. */
+    static final double DEFAULT_GAME_SECONDS = 30.0;
+    /** Number of further moves over which to spread the time remaining
+     *  on the game clock. */
+    private static final int MOVES_TO_GO = 20;
+    /** Least time to allot to a move, in milliseconds. */
+    private static final long MIN_MOVE_MILLIS = 50;
+
+    /** Limits on time per move and per game for new players, in
+     *  milliseconds. */
+    private static long
+        _moveMillis = (long) (DEFAULT_MOVE_SECONDS * Game.MILLISEC),
+        _gameMillis = (long) (DEFAULT_GAME_SECONDS * Game.MILLISEC);
+
+    /** Limit subsequently created MachinePlayers to MOVESECONDS seconds
+     *  per move and GAMESECONDS seconds for all their moves in a game. */
+    static void setTimeLimits(double moveSeconds, double gameSeconds) {
+        _moveMillis = (long) (moveSeconds * Game.MILLISEC);
+        _gameMillis = (long) (gameSeconds * Game.MILLISEC);
     }
 
-    /** Used to convey moves discovered by findMove. */
-    private Move _foundMove;
+    /** Time used so far on my moves in the current game, in
+     *  milliseconds. */
+    private long _timeUsed;
+    /** True iff my searchers have been asked to stop. */
+    private volatile boolean _stopRequested;
+    /** My searchers, of which the first is the main one.  Created with
+     *  _table. */
+    private Searcher[] _searchers;
+    /** Threads on which my helper searchers run, if there are any. */
+    private ExecutorService _helpers;
+    /** Most pieces on the board for which to try the proof-number
+     *  solver before searching. */
+    private static final int SOLVER_PIECES = 12;
+    /** Most node expansions by the proof-number solver before
+     *  searching. */
+    private static final int SOLVER_EXPANSIONS = 2000;
+    /** Number of nodes in the proof-number solver's tree. */
+    private static final int SOLVER_NODES = 1 << 17;
+    /** My proof-number solver, created on first use. */
+    private ProofNumberSearch _solver;
+    /** Thread on which my main searcher ponders, created on first
+     *  use. */
+    private ExecutorService _ponderThread;
+    /** The searches started by startPondering, indexed by searcher, or
+     *  null if I am not pondering. */
+    private Future<?>[] _pondering;
+    /** Threads on which the root-splitting search runs, created on
+     *  first use. */
+    private ForkJoinPool _splitPool;
+    /** Number of nodes visited by the current root-splitting search. */
+    private final LongAdder _splitNodes = new LongAdder();
+    /** The Searcher used by each thread in the root-splitting search. */
+    private final ThreadLocal<Searcher> _splitSearchers =
+        new ThreadLocal<>();
+
+    /** The middle values of zone2Rand and zone3Rand, used in their
+     *  place by the deterministic evaluation. */
+    private static final int ZONE2_VALUE = 30, ZONE3_VALUE = 100;
+    /** Points lost by the deterministic evaluation per unit of mean
+     *  squared distance of a side's pieces from their center. */
+    private static final int CONCENTRATION_WEIGHT = 10;
+
     /** Used to access the last score of the board. */
     private int holder;
     /** Integer passed into randInt. */
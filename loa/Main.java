@@ -36,7 +36,14 @@ public class Main {
     public static void main(String... args) {
         CommandArgs options =
             new CommandArgs("--debug=(\\d+){0,1} --display{0,1} --strict{0,1} "
-                            + "--log={0,1} --=(.*){0,2}",
+                            + "--log={0,1} --tt=(\\d+){0,1} "
+                            + "--threads=(\\d+){0,1} --depth=(\\d+){0,1} "
+                            + "--noise=(\\d+){0,1} --randomeval{0,1} "
+                            + "--nonullmove{0,1} --nofutility{0,1} "
+                            + "--ponder{0,1} --book=(.+){0,1} "
+                            + "--makebook=(.+){0,1} "
+                            + "--time=([\\d.]+){0,1} --gametime=([\\d.]+){0,1} "
+                            + "--=(.*){0,2}",
                             args);
 
         if (!options.ok()) {
@@ -49,6 +56,54 @@ public class Main {
             setMessageLevel(options.getInt("--debug"));
         }
 
+        if (options.contains("--tt")) {
+            MachinePlayer.setTableSize(options.getInt("--tt"));
+        }
+
+        if (options.contains("--threads")) {
+            MachinePlayer.setThreads(options.getInt("--threads"));
+        }
+
+        if (options.contains("--depth")) {
+            MachinePlayer.setSplitDepth(options.getInt("--depth"));
+        }
+
+        MachinePlayer.setRandomEvaluation(options.contains("--randomeval"));
+        MachinePlayer.setPruning(!options.contains("--nonullmove"),
+                                 !options.contains("--nofutility"));
+        MachinePlayer.setPonder(options.contains("--ponder"));
+
+        if (options.contains("--makebook")) {
+            try {
+                OpeningBook.build(new InputStreamReader(System.in),
+                                  options.getFirst("--makebook"));
+            } catch (IOException excp) {
+                error(1, "Could not write opening book: %s%n",
+                      excp.getMessage());
+            }
+            System.exit(0);
+        }
+
+        if (options.contains("--book")) {
+            try {
+                MachinePlayer.setBook(
+                    new OpeningBook(options.getFirst("--book")));
+            } catch (IOException excp) {
+                error(1, "Could not read opening book: %s%n",
+                      excp.getMessage());
+            }
+        }
+        if (options.contains("--noise")) {
+            MachinePlayer.setNoise(options.getInt("--noise"));
+        }
+
+        if (options.contains("--time") || options.contains("--gametime")) {
+            MachinePlayer.setTimeLimits(
+                seconds(options, "--time", MachinePlayer.DEFAULT_MOVE_SECONDS),
+                seconds(options, "--gametime",
+                        MachinePlayer.DEFAULT_GAME_SECONDS));
+        }
+
         List<String> files = options.get("--");
         if (!files.isEmpty()) {
             try {
@@ -114,6 +169,21 @@ public class Main {
                         new MachinePlayer(), options.contains("--strict"));
     }
 
+    /** Return the number of seconds given by option KEY in OPTIONS, or
+     *  DFLT if it is absent. */
+    private static double seconds(CommandArgs options, String key,
+                                  double dflt) {
+        if (!options.contains(key)) {
+            return dflt;
+        }
+        try {
+            return Double.parseDouble(options.getFirst(key));
+        } catch (NumberFormatException excp) {
+            usage();
+            return dflt;
+        }
+    }
+
     /** Print brief description of the command-line format. */
     static void usage() {
         printResource(USAGE);
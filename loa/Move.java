@@ -49,6 +49,40 @@ final class Move {
         return mv(from, to, false);
     }
 
+    /** Return the Move whose packed encoding (see pack) is MOVE. */
+    static Move mv(int move) {
+        return _moves[fromIndex(move)][toIndex(move)]
+            [isCapture(move) ? 1 : 0];
+    }
+
+    /** Return the packed encoding of a move from the square with index
+     *  FROM to that with index TO, capturing iff CAPTURE.  Packed moves
+     *  let the search keep moves in primitive arrays; use mv(int) to get
+     *  the corresponding Move. */
+    static int pack(int from, int to, boolean capture) {
+        return from | (to << TO_SHIFT) | (capture ? CAPTURE_BIT : 0);
+    }
+
+    /** Return the index of the Square moved from by packed move MOVE. */
+    static int fromIndex(int move) {
+        return move & SQ_MASK;
+    }
+
+    /** Return the index of the Square moved to by packed move MOVE. */
+    static int toIndex(int move) {
+        return (move >>> TO_SHIFT) & SQ_MASK;
+    }
+
+    /** Return true iff packed move MOVE is a capture. */
+    static boolean isCapture(int move) {
+        return (move & CAPTURE_BIT) != 0;
+    }
+
+    /** Return my packed encoding. */
+    int pack() {
+        return pack(_from.index(), _to.index(), _capture);
+    }
+
     /** Return the Square moved from. */
     Square getFrom() {
         return _from;
@@ -87,19 +121,6 @@ final class Move {
         _captureMove = _capture ? this : new Move(from, to, true);
     }
 
-    /** Getter method for value.
-     * @return the value of the move*/
-    int value() {
-        return value;
-    }
-
-    /** Setter method for value.
-     * @param j - number to set value to
-     */
-    void setValue(int j) {
-        value = j;
-    }
-
     /** Starting and destination Squares. */
     private final Square _from, _to;
     /** True iff this Move records a capture. */
@@ -113,8 +134,15 @@ final class Move {
      *  a capture. */
     private static Move[][][] _moves = new Move[NUM_SQUARES][NUM_SQUARES][2];
 
-    /** The value of the board after this move is made. */
-    private int value;
+    /** A packed move value that denotes no move. */
+    static final int NO_MOVE = -1;
+
+    /** Position of the destination square index in a packed move. */
+    private static final int TO_SHIFT = 6;
+    /** Mask extracting a square index from a packed move. */
+    private static final int SQ_MASK = NUM_SQUARES - 1;
+    /** Flag marking a packed move as a capture. */
+    private static final int CAPTURE_BIT = 1 << 12;
 
     static {
         for (int c = 0; c < BOARD_SIZE; c += 1) {
@@ -0,0 +1,184 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+/** Supplies the moves from one node of a search in the order in which
+ *  to try them, generating them in stages so that no more are generated
+ *  than are needed before a cutoff.  First comes the best move recorded
+ *  for the position in the transposition table, which needs no
+ *  generation at all; then captures; then the killer moves for the
+ *  node's ply; and finally the other quiet moves, in decreasing order
+ *  of their history scores, selected one at a time.  No move is
+ *  supplied twice.  A MovePicker is reused for every node at one ply,
+ *  and allocates nothing after construction.
+ *  @author Ryan Van de Water
+ */
+class MovePicker {
+
+    /** Start supplying the moves of BOARD, where HASHMOVE is the move
+     *  (packed as by Move.pack) from the transposition table, KILLER0
+     *  and KILLER1 are the killer moves, any of which may be
+     *  Move.NO_MOVE, and HISTORY holds the history scores of quiet
+     *  moves, indexed by historyIndex.  BOARD must not change (other
+     *  than by moves that are retracted before the next call to next)
+     *  until all moves have been supplied or the node is abandoned. */
+    void start(Board board, int hashMove, int killer0, int killer1,
+               int[] history) {
+        _board = board;
+        _hashMove = hashMove;
+        _killer0 = killer0;
+        _killer1 = killer1 == killer0 ? Move.NO_MOVE : killer1;
+        _history = history;
+        _stage = HASH;
+    }
+
+    /** Return the next move to try, or Move.NO_MOVE if there are no
+     *  more. */
+    int next() {
+        while (true) {
+            switch (_stage) {
+            case HASH:
+                _stage = GENERATE_CAPTURES;
+                if (_hashMove != Move.NO_MOVE && _board.isLegal(_hashMove)) {
+                    return _hashMove;
+                }
+                _hashMove = Move.NO_MOVE;
+                break;
+            case GENERATE_CAPTURES:
+                _end = _board.generateCaptures(_moves, 0);
+                _index = 0;
+                _stage = CAPTURES;
+                break;
+            case CAPTURES:
+                while (_index < _end) {
+                    int move = _moves[_index];
+                    _index += 1;
+                    if (move != _hashMove) {
+                        return move;
+                    }
+                }
+                _stage = KILLER0;
+                break;
+            case KILLER0:
+                _stage = KILLER1;
+                if (isKiller(_killer0)) {
+                    return _killer0;
+                }
+                _killer0 = Move.NO_MOVE;
+                break;
+            case KILLER1:
+                _stage = GENERATE_QUIETS;
+                if (isKiller(_killer1)) {
+                    return _killer1;
+                }
+                _killer1 = Move.NO_MOVE;
+                break;
+            case GENERATE_QUIETS:
+                _end = _board.generateQuiets(_moves, 0);
+                for (int i = 0; i < _end; i += 1) {
+                    _keys[i] = _history[historyIndex(_moves[i])];
+                }
+                _index = 0;
+                _stage = QUIETS;
+                break;
+            case QUIETS:
+                while (_index < _end) {
+                    int move = selectBest();
+                    if (move != _hashMove && move != _killer0
+                        && move != _killer1) {
+                        return move;
+                    }
+                }
+                _stage = DONE;
+                break;
+            case LIST:
+                if (_index < _end) {
+                    _index += 1;
+                    return _moves[_index - 1];
+                }
+                _stage = DONE;
+                break;
+            default:
+                return Move.NO_MOVE;
+            }
+        }
+    }
+
+    /** Supply the remaining moves in the order they would otherwise
+     *  come, but starting with the Kth of them (mod their number) and
+     *  wrapping around.  Generates all the remaining moves at once. */
+    void rotate(int k) {
+        int n = 0;
+        for (int move = next(); move != Move.NO_MOVE; move = next()) {
+            _rotated[n] = move;
+            n += 1;
+        }
+        for (int i = 0; i < n; i += 1) {
+            _moves[i] = _rotated[(i + k) % n];
+        }
+        _index = 0;
+        _end = n;
+        _stage = LIST;
+    }
+
+    /** Return the index in a table of history scores of MOVE. */
+    static int historyIndex(int move) {
+        return Move.fromIndex(move) * Square.NUM_SQUARES + Move.toIndex(move);
+    }
+
+    /** Return true iff MOVE is a killer move to try: a legal quiet move
+     *  other than the hash move. */
+    private boolean isKiller(int move) {
+        return move != Move.NO_MOVE && move != _hashMove
+            && !Move.isCapture(move) && _board.isLegal(move);
+    }
+
+    /** Move the quiet move with the highest history score (the first
+     *  such, in case of ties) among _moves[_index .. _end-1] to
+     *  _moves[_index], and return it, advancing _index. */
+    private int selectBest() {
+        int best = _index;
+        for (int i = _index + 1; i < _end; i += 1) {
+            if (_keys[i] > _keys[best]) {
+                best = i;
+            }
+        }
+        int move = _moves[best], key = _keys[best];
+        for (int i = best; i > _index; i -= 1) {
+            _moves[i] = _moves[i - 1];
+            _keys[i] = _keys[i - 1];
+        }
+        _moves[_index] = move;
+        _keys[_index] = key;
+        _index += 1;
+        return move;
+    }
+
+    /** Stages of move supply. */
+    private static final int
+        HASH = 0, GENERATE_CAPTURES = 1, CAPTURES = 2, KILLER0 = 3,
+        KILLER1 = 4, GENERATE_QUIETS = 5, QUIETS = 6, LIST = 7, DONE = 8;
+
+    /** The position whose moves I supply. */
+    private Board _board;
+    /** The move from the transposition table, or Move.NO_MOVE if there
+     *  is none or it is illegal. */
+    private int _hashMove;
+    /** The killer moves, or Move.NO_MOVE.  Once their stages are past,
+     *  these are the killers actually supplied. */
+    private int _killer0, _killer1;
+    /** History scores of quiet moves. */
+    private int[] _history;
+    /** The current stage. */
+    private int _stage;
+    /** The moves of the current stage, of which those before _index
+     *  have been dealt with, and those from _end on are invalid. */
+    private final int[] _moves = new int[Board.MAX_MOVES];
+    /** History scores of the quiet moves in _moves. */
+    private final int[] _keys = new int[Board.MAX_MOVES];
+    /** The moves collected by rotate.  Separate from _moves and _keys,
+     *  which the later stages overwrite while rotate collects. */
+    private final int[] _rotated = new int[Board.MAX_MOVES];
+    /** Boundaries of the unsupplied moves in _moves. */
+    private int _index, _end;
+}
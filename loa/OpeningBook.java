@@ -0,0 +1,196 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/** A book of opening moves, read from a binary file that is mapped into
+ *  memory rather than read in, so that opening it costs nothing and
+ *  several programs using the same book share one copy of it.
+ *
+ *  The file starts with a header of three ints: MAGIC, VERSION, and the
+ *  number of entries.  Each entry that follows gives a position's hash
+ *  key (see Board.hashKey) as a long, a move in that position (packed
+ *  as by Move.pack) as a short, and the move's weight as an unsigned
+ *  short.  Entries are sorted by key, so that the moves for a position
+ *  are adjacent and may be found by binary search.
+ *  @author Ryan Van de Water
+ */
+class OpeningBook {
+
+    /** Marks the start of a book file ("LOAB"). */
+    static final int MAGIC = 0x4c4f4142;
+    /** Version of the file format. */
+    static final int VERSION = 1;
+
+    /** Number of plies of each game recorded by build. */
+    static final int BOOK_PLIES = 12;
+
+    /** The book in the file named FILENAME.  Throws IOException if it
+     *  cannot be read or is not a book. */
+    OpeningBook(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                                                    READ)) {
+            _entries = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                   channel.size());
+        }
+        if (_entries.limit() < HEADER_BYTES
+            || _entries.getInt(0) != MAGIC
+            || _entries.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException(fileName + " is not an opening book");
+        }
+        _size = _entries.getInt(2 * Integer.BYTES);
+        if (_size < 0
+            || _entries.limit() < HEADER_BYTES + (long) _size * ENTRY_BYTES) {
+            throw new IOException(fileName + " is truncated");
+        }
+    }
+
+    /** Return the number of entries in this book. */
+    int size() {
+        return _size;
+    }
+
+    /** Return a legal book move (packed as by Move.pack) for BOARD,
+     *  chosen at random using RANDOM with probability proportional to
+     *  its weight, or Move.NO_MOVE if the book has none. */
+    int move(Board board, Random random) {
+        long key = board.hashKey();
+        int total = 0;
+        int end;
+        for (end = find(key); end < _size && key(end) == key; end += 1) {
+            if (board.isLegal(move(end))) {
+                total += weight(end);
+            }
+        }
+        if (total == 0) {
+            return Move.NO_MOVE;
+        }
+        int choice = random.nextInt(total);
+        for (int i = find(key); i < end; i += 1) {
+            if (board.isLegal(move(i))) {
+                choice -= weight(i);
+                if (choice < 0) {
+                    return move(i);
+                }
+            }
+        }
+        throw new Error("unreachable");
+    }
+
+    /** Return the index of the first entry whose key is KEY, or of the
+     *  entry that would follow it if there is none. */
+    private int find(long key) {
+        int lo = 0, hi = _size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the key of entry I. */
+    private long key(int i) {
+        return _entries.getLong(HEADER_BYTES + i * ENTRY_BYTES);
+    }
+
+    /** Return the move of entry I. */
+    private int move(int i) {
+        return _entries.getShort(HEADER_BYTES + i * ENTRY_BYTES
+                                 + Long.BYTES);
+    }
+
+    /** Return the weight of entry I. */
+    private int weight(int i) {
+        return Short.toUnsignedInt(
+            _entries.getShort(HEADER_BYTES + i * ENTRY_BYTES
+                              + Long.BYTES + Short.BYTES));
+    }
+
+    /** Write a book to the file named FILENAME that gives, for each
+     *  position reached in the first BOOK_PLIES plies of the games in
+     *  GAMES, the moves played from it, weighted by the number of
+     *  games that played them.  GAMES contains one game per line, each
+     *  a sequence of moves (such as "b1-b3") from the initial position,
+     *  separated by whitespace.  Each game is recorded only up to its
+     *  first illegal or unrecognized move. */
+    static void build(Reader games, String fileName) throws IOException {
+        TreeMap<Long, TreeMap<Integer, Integer>> book = new TreeMap<>();
+        BufferedReader lines = new BufferedReader(games);
+        for (String line = lines.readLine(); line != null;
+             line = lines.readLine()) {
+            Board board = new Board();
+            String[] moves = line.trim().split("\\s+");
+            for (int k = 0; k < moves.length && k < BOOK_PLIES; k += 1) {
+                Move move = Move.mv(moves[k]);
+                if (move == null || board.gameOver()
+                    || !board.isLegal(move)) {
+                    break;
+                }
+                int packed =
+                    Move.pack(move.getFrom().index(), move.getTo().index(),
+                              board.get(move.getTo()) == board.turn()
+                              .opposite());
+                book.computeIfAbsent(board.hashKey(), x -> new TreeMap<>())
+                    .merge(packed, 1, Integer::sum);
+                board.makeMove(packed);
+            }
+        }
+        write(book, fileName);
+    }
+
+    /** Write BOOK, which maps each position's hash key to the weights
+     *  of its book moves, to the file named FILENAME. */
+    static void write(TreeMap<Long, TreeMap<Integer, Integer>> book,
+                      String fileName) throws IOException {
+        int size = 0;
+        for (TreeMap<Integer, Integer> moves : book.values()) {
+            size += moves.size();
+        }
+        try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(
+                 new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (Map.Entry<Long, TreeMap<Integer, Integer>> position
+                     : book.entrySet()) {
+                for (Map.Entry<Integer, Integer> move
+                         : position.getValue().entrySet()) {
+                    out.writeLong(position.getKey());
+                    out.writeShort(move.getKey());
+                    out.writeShort(Math.min(move.getValue(), MAX_WEIGHT));
+                }
+            }
+        }
+    }
+
+    /** Number of bytes in the header. */
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    /** Number of bytes in an entry. */
+    private static final int ENTRY_BYTES = Long.BYTES + 2 * Short.BYTES;
+    /** Largest weight an entry can hold. */
+    private static final int MAX_WEIGHT = 0xffff;
+
+    /** The contents of the book file. */
+    private final ByteBuffer _entries;
+    /** Number of entries in the book. */
+    private final int _size;
+}
@@ -34,6 +34,28 @@ public abstract class Player {
         return _game;
     }
 
+    /** Respond to MOVE having just been made on the game board, by
+     *  either side.  By default, does nothing. */
+    void moveMade(Move move) {
+    }
+
+    /** Respond to the game board having just been changed other than by
+     *  a move (by undo, new, or set).  By default, does nothing. */
+    void boardChanged() {
+    }
+
+    /** Respond to my being replaced by another player, after which I
+     *  will not be asked for moves.  By default, does nothing. */
+    void replaced() {
+    }
+
+    /** Respond to a new game having just been started on the game
+     *  board.  By default, treats it as any other change to the board
+     *  (see boardChanged). */
+    void newGame() {
+        boardChanged();
+    }
+
     /** Return true iff I am a manual (human or non-automated) player. */
     abstract boolean isManual();
 
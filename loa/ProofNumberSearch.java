@@ -0,0 +1,279 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A solver that tries to prove which side, if either, can force a win
+ *  from a position, by proof-number search.  Each node of the search
+ *  tree carries a proof number, the least number of unexpanded nodes
+ *  that must be shown to be wins to prove it a win, and a disproof
+ *  number, the corresponding number for disproving it.  The search
+ *  repeatedly expands a most-proving node: the unexpanded node reached
+ *  from the root by choosing, at the attacker's turns, the child with
+ *  the least proof number and, at the defender's, the one with the
+ *  least disproof number.
+ *
+ *  The tree lives in a fixed pool of nodes held in primitive arrays,
+ *  so memory use is bounded.  Once a node is solved, its subtree is
+ *  returned to the pool, except that a proven node keeps one proven
+ *  child, so that the winning line can be recovered.
+ *  @author Ryan Van de Water
+ */
+class ProofNumberSearch {
+
+    /** Result of solve when the side to move can force a win. */
+    static final int WIN = 1;
+    /** Result of solve when the side not to move can force a win. */
+    static final int LOSS = 2;
+    /** Result of solve when neither side's win could be proved, either
+     *  because the budget ran out or because neither has one. */
+    static final int UNKNOWN = 3;
+
+    /** A solver whose search tree holds at most MAXNODES nodes. */
+    ProofNumberSearch(int maxNodes) {
+        _proof = new int[maxNodes];
+        _disproof = new int[maxNodes];
+        _parent = new int[maxNodes];
+        _child = new int[maxNodes];
+        _sibling = new int[maxNodes];
+        _move = new int[maxNodes];
+    }
+
+    /** Try to prove a win from BOARD, for the side to move and then,
+     *  failing that, for its opponent, expanding at most EXPANSIONS
+     *  nodes in each attempt.  Return WIN, LOSS, or UNKNOWN.  After a
+     *  WIN or LOSS, line() returns the winning line.  Does not change
+     *  BOARD. */
+    int solve(Board board, int expansions) {
+        if (solveWin(board, expansions)) {
+            return WIN;
+        } else if (!board.gameOver()
+                   && prove(new Board(board), board.turn().opposite(),
+                            expansions)) {
+            return LOSS;
+        }
+        return UNKNOWN;
+    }
+
+    /** Try to prove a win from BOARD for the side to move only,
+     *  expanding at most EXPANSIONS nodes.  Return true iff one is
+     *  found, in which case line() returns the winning line.  Does not
+     *  change BOARD. */
+    boolean solveWin(Board board, int expansions) {
+        _line.clear();
+        _expansions = 0;
+        return !board.gameOver()
+            && prove(new Board(board), board.turn(), expansions);
+    }
+
+    /** Return the winning line found by the last successful solve or
+     *  solveWin: the moves of both sides from its position to the end
+     *  of the game, or until the loser cannot move, the loser's being
+     *  arbitrary. */
+    List<Move> line() {
+        return _line;
+    }
+
+    /** Return the number of nodes expanded by the last solve or
+     *  solveWin. */
+    long expansions() {
+        return _expansions;
+    }
+
+    /** Return true iff ATTACKER can be shown to force a win from BOARD
+     *  within EXPANSIONS node expansions and my node pool, recording
+     *  the winning line in _line if so.  Leaves BOARD unchanged. */
+    private boolean prove(Board board, Piece attacker, int expansions) {
+        clear();
+        _attacker = attacker;
+        int root = allocate(Move.NO_MOVE, NONE);
+        for (int k = 0; k < expansions && !solved(root); k += 1) {
+            int node = root;
+            while (_child[node] != NONE) {
+                node = mostProving(node, board.turn() == attacker);
+                board.makeMove(_move[node]);
+            }
+            boolean expanded = expand(node, board);
+            _expansions += expanded ? 1 : 0;
+            while (true) {
+                update(node, board.turn() == attacker);
+                if (node == root) {
+                    break;
+                }
+                board.retract();
+                node = _parent[node];
+            }
+            if (!expanded) {
+                break;
+            }
+        }
+        if (_proof[root] != 0) {
+            return false;
+        }
+        _line.clear();
+        for (int node = _child[root]; node != NONE; node = _child[node]) {
+            _line.add(Move.mv(_move[node]));
+        }
+        return true;
+    }
+
+    /** Empty my node pool. */
+    private void clear() {
+        _free = NONE;
+        _available = _proof.length;
+        _nextUnused = 0;
+    }
+
+    /** Return the child of NODE to expand next: the one with the least
+     *  proof number if ATTACKING (it is the attacker's turn), else the
+     *  one with the least disproof number. */
+    private int mostProving(int node, boolean attacking) {
+        int[] numbers = attacking ? _proof : _disproof;
+        int best = _child[node];
+        for (int c = _sibling[best]; c != NONE; c = _sibling[c]) {
+            if (numbers[c] < numbers[best]) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /** Give NODE, whose position is BOARD, a child for each legal move,
+     *  solving those that end the game.  If there are no legal moves,
+     *  solve NODE instead as a loss for the side to move.  Returns
+     *  false (and does nothing) if there are not enough free nodes. */
+    private boolean expand(int node, Board board) {
+        int n = board.generateMoves(_moves, 0);
+        if (n > _available) {
+            return false;
+        }
+        if (n == 0) {
+            boolean attacking = board.turn() == _attacker;
+            _proof[node] = attacking ? INFINITY : 0;
+            _disproof[node] = attacking ? 0 : INFINITY;
+            return true;
+        }
+        for (int i = n - 1; i >= 0; i -= 1) {
+            int child = allocate(_moves[i], node);
+            board.makeMove(_moves[i]);
+            Piece winner = board.winner();
+            board.retract();
+            if (winner == _attacker) {
+                _proof[child] = 0;
+                _disproof[child] = INFINITY;
+            } else if (winner != null) {
+                _proof[child] = INFINITY;
+                _disproof[child] = 0;
+            }
+        }
+        return true;
+    }
+
+    /** Recompute the proof and disproof numbers of NODE, if it has
+     *  children, from theirs, where ATTACKING indicates that it is the
+     *  attacker's turn at NODE.  If NODE is now solved, release its
+     *  subtree, except for one child that proves it, if it is proven. */
+    private void update(int node, boolean attacking) {
+        if (_child[node] == NONE) {
+            return;
+        }
+        int min = INFINITY, sum = 0;
+        int[] minOf = attacking ? _proof : _disproof,
+            sumOf = attacking ? _disproof : _proof;
+        for (int c = _child[node]; c != NONE; c = _sibling[c]) {
+            min = Math.min(min, minOf[c]);
+            sum = Math.min(INFINITY, sum + sumOf[c]);
+        }
+        minOf[node] = min;
+        sumOf[node] = sum;
+        if (solved(node)) {
+            int keep = NONE;
+            if (_proof[node] == 0) {
+                keep = _child[node];
+                while (_proof[keep] != 0) {
+                    keep = _sibling[keep];
+                }
+            }
+            for (int c = _child[node], next; c != NONE; c = next) {
+                next = _sibling[c];
+                if (c != keep) {
+                    release(c);
+                }
+            }
+            _child[node] = keep;
+            if (keep != NONE) {
+                _sibling[keep] = NONE;
+            }
+        }
+    }
+
+    /** Return true iff NODE is proven or disproven. */
+    private boolean solved(int node) {
+        return _proof[node] == 0 || _disproof[node] == 0;
+    }
+
+    /** Return a new unexpanded node for MOVE, with proof and disproof
+     *  numbers 1, as the first child of PARENT (if not NONE).  Assumes
+     *  that a node is available. */
+    private int allocate(int move, int parent) {
+        int node;
+        if (_free != NONE) {
+            node = _free;
+            _free = _sibling[node];
+        } else {
+            node = _nextUnused;
+            _nextUnused += 1;
+        }
+        _available -= 1;
+        _proof[node] = _disproof[node] = 1;
+        _move[node] = move;
+        _parent[node] = parent;
+        _child[node] = NONE;
+        _sibling[node] = NONE;
+        if (parent != NONE) {
+            _sibling[node] = _child[parent];
+            _child[parent] = node;
+        }
+        return node;
+    }
+
+    /** Return NODE and its subtree to the pool of free nodes. */
+    private void release(int node) {
+        for (int c = _child[node], next; c != NONE; c = next) {
+            next = _sibling[c];
+            release(c);
+        }
+        _sibling[node] = _free;
+        _free = node;
+        _available += 1;
+    }
+
+    /** A proof or disproof number too large to reach. */
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    /** Marks the absence of a node. */
+    private static final int NONE = -1;
+
+    /** Proof and disproof numbers of each node. */
+    private final int[] _proof, _disproof;
+    /** Parent, first child, and next sibling of each node, or NONE. */
+    private final int[] _parent, _child, _sibling;
+    /** The move (packed as by Move.pack) leading to each node. */
+    private final int[] _move;
+    /** The first of the released nodes, which are linked through
+     *  _sibling, or NONE. */
+    private int _free;
+    /** Number of nodes in neither the tree nor the released list. */
+    private int _nextUnused;
+    /** Number of nodes not in the tree. */
+    private int _available;
+    /** The side whose win is being proved. */
+    private Piece _attacker;
+    /** Nodes expanded by the last solve. */
+    private long _expansions;
+    /** The winning line found by the last solve. */
+    private final List<Move> _line = new ArrayList<>();
+    /** Moves of the node being expanded. */
+    private final int[] _moves = new int[Board.MAX_MOVES];
+}
@@ -0,0 +1,533 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static loa.Move.mv;
+import static loa.Piece.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/** Tests of the search support classes.
+ *  @author
+ */
+public class SearchTest {
+
+    @Test
+    public void testTranspositionTable() {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        assertEquals("entries", 64, table.size());
+        long key = new Board().hashKey();
+        assertEquals("empty probe", 0, table.probe(key));
+        int move = mv("b1-b3").pack();
+        table.store(key, 3, TranspositionTable.LOWER, -1234, move);
+        long entry = table.probe(key);
+        assertEquals("score", -1234, TranspositionTable.score(entry));
+        assertEquals("depth", 3, TranspositionTable.depth(entry));
+        assertEquals("bound", TranspositionTable.LOWER,
+                     TranspositionTable.bound(entry));
+        assertEquals("move", move, TranspositionTable.move(entry));
+        assertEquals("other key", 0, table.probe(key + table.size()));
+        table.store(key + table.size(), 1, TranspositionTable.EXACT, 0,
+                    Move.NO_MOVE);
+        assertEquals("shallower entry does not replace deeper", entry,
+                     table.probe(key));
+        table.newSearch();
+        table.store(key + table.size(), 1, TranspositionTable.EXACT, 0,
+                    Move.NO_MOVE);
+        assertEquals("stale entry replaced", Move.NO_MOVE,
+                     TranspositionTable.move(table.probe(key + table.size())));
+    }
+
+    @Test
+    public void testEvalCache() {
+        EvalCache cache = new EvalCache(4);
+        long key = new Board().hashKey();
+        assertFalse("empty", cache.probe(key));
+        cache.store(key, -17);
+        assertTrue("stored", cache.probe(key));
+        assertEquals("value", -17, cache.value());
+        assertFalse("same slot, other key", cache.probe(key + 16));
+        cache.store(key + 16, 5);
+        assertFalse("replaced", cache.probe(key));
+        assertEquals("hits", 1, cache.hits());
+        assertEquals("misses", 3, cache.misses());
+        cache.clear();
+        assertFalse("cleared", cache.probe(key + 16));
+    }
+
+    /** Check that the deterministic evaluation depends only on the
+     *  position, and treats the sides symmetrically. */
+    @Test
+    public void testEvaluation() {
+        MachinePlayer player = new MachinePlayer();
+        Board board = new Board();
+        assertEquals("symmetric start", 0, player.evaluate(board));
+        board.makeMove(mv("b1-b3"));
+        int value = player.evaluate(board);
+        assertEquals("repeatable", value,
+                     player.heuristicFunction(board, -1, new Random(1)));
+        assertEquals("independent of root side", value,
+                     player.heuristicFunction(board, 1, new Random(2)));
+        board.makeMove(mv("a2-c2"));
+        board.retract();
+        assertEquals("after retraction", value, player.evaluate(board));
+    }
+
+    /** Check that a MovePicker supplies each legal move once, in stages,
+     *  whatever the hash and killer moves. */
+    @Test
+    public void testMovePicker() {
+        Board board = new Board();
+        board.makeMove(mv("b1-b3"));
+        board.makeMove(mv("a2-c2"));
+        int[] history = new int[Square.NUM_SQUARES * Square.NUM_SQUARES];
+        int hash = mv("d1-d3").pack(), killer = mv("f1-f3").pack(),
+            favorite = mv("e1-e3").pack();
+        history[MovePicker.historyIndex(favorite)] = 100;
+        List<Move> legal = board.legalMoves();
+        MovePicker picker = new MovePicker();
+        picker.start(board, hash, killer, mv("a7-h7").pack(), history);
+        assertEquals("hash move first", hash, picker.next());
+        Set<Move> seen = new HashSet<>();
+        seen.add(Move.mv(hash));
+        int move;
+        for (move = picker.next(); Move.isCapture(move);
+             move = picker.next()) {
+            assertTrue("supplied once", seen.add(Move.mv(move)));
+        }
+        assertEquals("then killer", killer, move);
+        assertEquals("then best history", favorite, picker.next());
+        seen.add(Move.mv(killer));
+        seen.add(Move.mv(favorite));
+        for (move = picker.next(); move != Move.NO_MOVE;
+             move = picker.next()) {
+            assertFalse("captures first", Move.isCapture(move));
+            assertTrue("legal", board.isLegal(move));
+            assertTrue("supplied once", seen.add(Move.mv(move)));
+        }
+        assertEquals("all moves", new HashSet<>(legal), seen);
+
+        picker.start(board, hash, killer, Move.NO_MOVE, history);
+        picker.rotate(1);
+        Set<Move> rotated = new HashSet<>();
+        int n = 0;
+        for (move = picker.next(); move != Move.NO_MOVE;
+             move = picker.next(), n += 1) {
+            assertTrue("rotated move legal", board.isLegal(move));
+            rotated.add(Move.mv(move));
+        }
+        assertEquals("rotated moves distinct", legal.size(), n);
+        assertEquals("rotated moves", new HashSet<>(legal), rotated);
+    }
+
+    /** Check that entries torn by simultaneous stores from two threads
+     *  are never mistaken for either thread's entry. */
+    @Test
+    public void testSharedTable() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1 << 10);
+        long key0 = new Board().hashKey(), key1 = key0 + table.size();
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < STORES; i += 1) {
+                table.store(key1, 1, TranspositionTable.EXACT, 1,
+                            Move.NO_MOVE);
+            }
+        });
+        other.start();
+        for (int i = 0; i < STORES; i += 1) {
+            table.store(key0, 1, TranspositionTable.EXACT, 0, Move.NO_MOVE);
+            long entry0 = table.probe(key0), entry1 = table.probe(key1);
+            assertTrue("torn entry",
+                       entry0 == 0 || TranspositionTable.score(entry0) == 0);
+            assertTrue("torn entry",
+                       entry1 == 0 || TranspositionTable.score(entry1) == 1);
+        }
+        other.join();
+    }
+
+    /** Check that the root-splitting search chooses the same move each
+     *  time, and the same move as a single-threaded search. */
+    @Test
+    public void testSplitSearch() {
+        Board board = new Board();
+        try {
+            MachinePlayer.setThreads(1);
+            int serial = new MachinePlayer().searchSplit(board, 2, SEED);
+            MachinePlayer.setThreads(4);
+            MachinePlayer player = new MachinePlayer();
+            for (int i = 0; i < 3; i += 1) {
+                assertEquals("parallel search", serial,
+                             player.searchSplit(board, 2, SEED));
+            }
+            assertTrue("legal move", board.isLegal(Move.mv(serial)));
+        } finally {
+            MachinePlayer.setThreads(
+                Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /** A position in which white, to move, can win at once (by d3-d2,
+     *  among others), and in more leisurely ways. */
+    static final Piece[][] NEAR_WIN = {
+        { WP,  WP,  WP,  EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, WP,  EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, BP  },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, BP,  EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { BP,  EMP, EMP, EMP, EMP, EMP, EMP, BP  }
+    };
+
+    /** Check that the search prefers an immediate win to a later one,
+     *  and stops deepening once it has found it. */
+    @Test
+    public void testQuickestWin() {
+        Board board = new Board(NEAR_WIN, WP);
+        Searcher searcher = new Searcher(new MachinePlayer(), 0);
+        int move = searcher.search(board, new TranspositionTable(1 << 16),
+                                   System.currentTimeMillis(),
+                                   Long.MAX_VALUE, 1);
+        board.makeMove(move);
+        assertEquals("immediate win", WP, board.winner());
+    }
+
+    /** A position in which each of white's two pieces is boxed in by
+     *  black's, so that white, if to move, cannot move. */
+    static final Piece[][] BLOCKED = {
+        { WP,  BP,  EMP, EMP, EMP, EMP, EMP, EMP },
+        { BP,  BP,  EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, BP,  EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, EMP, EMP },
+        { EMP, EMP, EMP, EMP, EMP, EMP, BP,  BP  },
+        { EMP, EMP, EMP, EMP, EMP, EMP, BP,  WP  }
+    };
+
+    /** Check that the root's value is stored in the transposition
+     *  table only when the search adds no noise to it. */
+    @Test
+    public void testNoiseNotStored() {
+        Board board = new Board();
+        for (int noise : new int[] { 0, 100 }) {
+            MachinePlayer.setNoise(noise);
+            try {
+                TranspositionTable table = new TranspositionTable(1 << 16);
+                new Searcher(new MachinePlayer(), 0)
+                    .search(board, table, System.currentTimeMillis(), 200, 1);
+                assertEquals("root stored", noise == 0,
+                             table.probe(board.hashKey()) != 0);
+            } finally {
+                MachinePlayer.setNoise(0);
+            }
+        }
+    }
+
+    /** Check that a side with no legal moves loses, and that the
+     *  searches then find no move rather than failing. */
+    @Test
+    public void testNoMoves() {
+        Board board = new Board(BLOCKED, BP);
+        Searcher searcher = new Searcher(new MachinePlayer(), 0);
+        assertEquals("win by blocking", MachinePlayer.WINNING_VALUE - 1,
+                     searcher.searchMove(board, mv("d4-d5").pack(), 2,
+                                         -Integer.MAX_VALUE,
+                                         Integer.MAX_VALUE, SEED));
+        board = new Board(BLOCKED, WP);
+        assertEquals("no moves", 0, board.legalMoves().size());
+        assertEquals("no move found", Move.NO_MOVE,
+                     searcher.search(board, new TranspositionTable(1 << 10),
+                                     System.currentTimeMillis(),
+                                     Long.MAX_VALUE, 1));
+        assertEquals("no split move", Move.NO_MOVE,
+                     new MachinePlayer().searchSplit(board, 2, SEED));
+    }
+
+    /** Check that quiescence search looks past the nominal depth for
+     *  winning moves: searched to one ply, each of Black's moves in
+     *  NEAR_WIN, none of which stops White's win, scores as a loss. */
+    @Test
+    public void testQuiescence() {
+        for (int value : rootValues(new Board(NEAR_WIN, BP), 1, true)) {
+            assertTrue("loss seen", value
+                       <= Searcher.MAX_PLY - MachinePlayer.WINNING_VALUE);
+        }
+    }
+
+    /** Check that the principal variation search is consistent at a
+     *  depth too shallow for late move reductions: each root move's
+     *  value with a window just around its full-window value is that
+     *  value, and with a null window just above or below it is a bound
+     *  on the correct side, as aspiration windows require.  Pruning,
+     *  whose decisions depend on the window, is turned off. */
+    @Test
+    public void testWindows() {
+        Board board = new Board(BoardTest.BOARD1, Piece.WP);
+        MachinePlayer.setPruning(false, false);
+        try {
+            Searcher searcher = new Searcher(new MachinePlayer(), 0);
+            int[] moves = rootMoves(board),
+                values = rootValues(board, 3, true);
+            for (int i = 0; i < moves.length; i += 1) {
+                int full = values[i],
+                    narrow = searcher.searchMove(board, moves[i], 3, full - 1,
+                                                 full + 1, SEED),
+                    above = searcher.searchMove(board, moves[i], 3, full,
+                                                full + 1, SEED),
+                    below = searcher.searchMove(board, moves[i], 3, full - 1,
+                                                full, SEED);
+                assertEquals("narrow window", full, narrow);
+                assertTrue("upper bound", above <= full);
+                assertTrue("lower bound", below >= full);
+            }
+        } finally {
+            MachinePlayer.setPruning(true, true);
+        }
+    }
+
+    /** Check that a search counts its beta cutoffs, and that with
+     *  captures, killers, and history ordered first, the first move
+     *  tried causes a large share of them. */
+    @Test
+    public void testCutoffStatistics() {
+        Searcher searcher = new Searcher(new MachinePlayer(), 0);
+        searchRoot(searcher, new Board(BoardTest.BOARD1, Piece.WP), 4, true,
+                   null);
+        assertTrue("cutoffs counted", searcher.cutoffs() > 0);
+        assertTrue("first-move cutoffs",
+                   searcher.firstCutoffs() <= searcher.cutoffs()
+                   && 3 * searcher.firstCutoffs() > searcher.cutoffs());
+    }
+
+    /** Seed for the random numbers of the fixed-depth searches. */
+    private static final long SEED = 12345;
+
+    /** Return the moves from BOARD, in the order generated. */
+    private static int[] rootMoves(Board board) {
+        int[] moves = new int[Board.MAX_MOVES];
+        return Arrays.copyOf(moves, board.generateMoves(moves, 0));
+    }
+
+    /** Search each move from BOARD to DEPTH with SEARCHER and the full
+     *  window, in the order generated if FORWARD, else in reverse
+     *  order, and return the total number of nodes searched.  Unless
+     *  VALUES is null, sets VALUES[i] to the value of the Ith move
+     *  generated. */
+    private static long searchRoot(Searcher searcher, Board board,
+                                   int depth, boolean forward,
+                                   int[] values) {
+        int[] moves = rootMoves(board);
+        long nodes = 0;
+        for (int k = 0; k < moves.length; k += 1) {
+            int i = forward ? k : moves.length - 1 - k;
+            int value = searcher.searchMove(board, moves[i], depth,
+                                            -Integer.MAX_VALUE,
+                                            Integer.MAX_VALUE, SEED);
+            nodes += searcher.nodes();
+            if (values != null) {
+                values[i] = value;
+            }
+        }
+        return nodes;
+    }
+
+    /** Return the values of the moves from BOARD searched to DEPTH by
+     *  one Searcher, in order if FORWARD, else in reverse order, but
+     *  listed in the order of BOARD's generated moves. */
+    private static int[] rootValues(Board board, int depth,
+                                    boolean forward) {
+        int[] values = new int[rootMoves(board).length];
+        searchRoot(new Searcher(new MachinePlayer(), 0), board, depth,
+                   forward, values);
+        return values;
+    }
+
+    /** Check that, with late move reductions (which depend on move
+     *  order, and so on history scores), the value of each root move
+     *  in a fixed-depth search does not depend on which moves the same
+     *  Searcher searched before. */
+    @Test
+    public void testSearchMoveIndependent() {
+        Board board = new Board();
+        assertEquals("order of root moves",
+                     Arrays.toString(rootValues(board, 4, true)),
+                     Arrays.toString(rootValues(board, 4, false)));
+    }
+
+    /** Check that the proof-number solver finds a win and its line, and
+     *  a loss unless asked only for wins, and gives up when its node
+     *  pool is too small. */
+    @Test
+    public void testProofNumberSearch() {
+        Board board = new Board(NEAR_WIN, WP);
+        ProofNumberSearch solver = new ProofNumberSearch(1 << 12);
+        assertEquals("win", ProofNumberSearch.WIN, solver.solve(board, 100));
+        for (Move move : solver.line()) {
+            assertFalse("line continues", board.gameOver());
+            board.makeMove(move);
+        }
+        assertEquals("line wins", WP, board.winner());
+        Board loss = new Board(NEAR_WIN, BP);
+        assertEquals("loss", ProofNumberSearch.LOSS, solver.solve(loss, 100));
+        assertFalse("win only", solver.solveWin(loss, 100));
+        assertTrue("win for mover",
+                   solver.solveWin(new Board(NEAR_WIN, WP), 100));
+        assertEquals("tiny pool", ProofNumberSearch.UNKNOWN,
+                     new ProofNumberSearch(10).solve(new Board(), 100));
+    }
+
+    /** Check that an opening book written by build offers exactly the
+     *  moves of its games, in proportion to their frequency. */
+    @Test
+    public void testOpeningBook() throws IOException {
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        OpeningBook.build(new StringReader("b1-d3 a7-c7 d3-a3\n"
+                                           + "b1-d3 h6-f4\n"
+                                           + "c1-c3\n"
+                                           + "b1-d3 a7-c7 x\n"),
+                          file.getPath());
+        OpeningBook book = new OpeningBook(file.getPath());
+        assertEquals("entries", 5, book.size());
+        Board board = new Board();
+        Random random = new Random(3);
+        int b1d3 = 0;
+        for (int i = 0; i < 400; i += 1) {
+            Move move = Move.mv(book.move(board, random));
+            assertTrue("opening move", move == mv("b1-d3")
+                       || move == mv("c1-c3"));
+            b1d3 += move == mv("b1-d3") ? 1 : 0;
+        }
+        assertTrue("weighted", b1d3 > 250 && b1d3 < 350);
+        board.makeMove(mv("b1-d3"));
+        board.makeMove(mv("h6-f4"));
+        assertEquals("no moves", Move.NO_MOVE, book.move(board, random));
+        board.retract();
+        board.makeMove(mv("a7-c7"));
+        int capture = book.move(board, random);
+        assertEquals("capture", mv("d3-a3", true), Move.mv(capture));
+    }
+
+    /** Check that a machine player ponders after its own move and stops
+     *  when its opponent moves, when the board is changed otherwise, as
+     *  by undo, and when it is replaced. */
+    @Test
+    public void testPondering() {
+        Board board = new Board();
+        Game game = new Game(new NullView(), null, new TextReporter(),
+                             new HumanPlayer(), new MachinePlayer(), false) {
+                @Override
+                Board getBoard() {
+                    return board;
+                }
+            };
+        MachinePlayer player = new MachinePlayer(BP, game);
+        MachinePlayer.setPonder(true);
+        try {
+            board.makeMove(mv("b1-b3"));
+            player.moveMade(mv("b1-b3"));
+            assertTrue("pondering after own move", player.pondering());
+            board.makeMove(mv("a2-c2"));
+            player.moveMade(mv("a2-c2"));
+            assertFalse("stopped by opponent's move", player.pondering());
+            board.makeMove(mv("d1-d3"));
+            player.moveMade(mv("d1-d3"));
+            assertTrue("pondering again", player.pondering());
+            board.retract();
+            board.retract();
+            player.boardChanged();
+            assertFalse("stopped by undo", player.pondering());
+            board.makeMove(mv("a2-c2"));
+            player.moveMade(mv("a2-c2"));
+            board.makeMove(mv("d1-d3"));
+            player.moveMade(mv("d1-d3"));
+            assertTrue("pondering after undo", player.pondering());
+            player.replaced();
+            assertFalse("stopped when replaced", player.pondering());
+        } finally {
+            MachinePlayer.setPonder(false);
+            player.boardChanged();
+        }
+    }
+
+    /** Benchmark: a fixed-depth search, including its evaluations,
+     *  allocates nothing per node once warmed up.  (Reading the
+     *  allocation counter itself allocates several hundred bytes.) */
+    @Test
+    public void testSearchAllocation() {
+        Board board = new Board();
+        Searcher searcher = new Searcher(new MachinePlayer(), 0);
+        int move = rootMoves(board)[0];
+        searchRoot(searcher, board, 4, true, null);
+        long before = BoardTest.allocatedBytes();
+        searcher.searchMove(board, move, 4, -Integer.MAX_VALUE,
+                            Integer.MAX_VALUE, SEED);
+        long bytes = BoardTest.allocatedBytes() - before;
+        assertTrue("allocated " + bytes + " bytes over "
+                   + searcher.nodes() + " nodes", bytes < 2048);
+    }
+
+    /** Return the greatest value of the moves from BOARD in a search to
+     *  DEPTH, with null-move and futility pruning iff PRUNE. */
+    private static int bestValue(Board board, int depth, boolean prune) {
+        MachinePlayer.setPruning(prune, prune);
+        try {
+            int best = -Integer.MAX_VALUE;
+            for (int value : rootValues(board, depth, true)) {
+                best = Math.max(best, value);
+            }
+            return best;
+        } finally {
+            MachinePlayer.setPruning(true, true);
+        }
+    }
+
+    /** Return the number of nodes in a search to DEPTH of all the moves
+     *  from BOARD, with null-move and futility pruning iff PRUNE. */
+    private static long searchNodes(Board board, int depth, boolean prune) {
+        MachinePlayer.setPruning(prune, prune);
+        try {
+            return searchRoot(new Searcher(new MachinePlayer(), 0), board,
+                              depth, true, null);
+        } finally {
+            MachinePlayer.setPruning(true, true);
+        }
+    }
+
+    /** Check that null-move and futility pruning leave the value of
+     *  simple positions unchanged at shallow fixed depths, including
+     *  forced wins and losses, while searching fewer nodes, and that
+     *  with them the value of each root move still does not depend on
+     *  the order in which the moves are searched. */
+    @Test
+    public void testPruning() {
+        Board nearWin = new Board(NEAR_WIN, WP),
+            nearLoss = new Board(NEAR_WIN, BP),
+            general = new Board(BoardTest.BOARD1, WP);
+        assertEquals("forced win", bestValue(nearWin, 4, false),
+                     bestValue(nearWin, 4, true));
+        assertEquals("forced loss", bestValue(nearLoss, 4, false),
+                     bestValue(nearLoss, 4, true));
+        assertEquals("general position", bestValue(general, 3, false),
+                     bestValue(general, 3, true));
+        assertTrue("fewer nodes", searchNodes(general, 4, true)
+                   < searchNodes(general, 4, false));
+        assertEquals("order of root moves",
+                     Arrays.toString(rootValues(general, 4, true)),
+                     Arrays.toString(rootValues(general, 4, false)));
+    }
+
+    /** Number of stores made by each thread in testSharedTable. */
+    private static final int STORES = 200000;
+
+}
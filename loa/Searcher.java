@@ -0,0 +1,606 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import static loa.Piece.*;
+import static loa.Utils.*;
+import static loa.Square.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** One thread's share of a MachinePlayer's game-tree search.  Each
+ *  Searcher owns its own copy of the position and its own move lists,
+ *  and shares only its player's transposition table and evaluation
+ *  function with the others.  Searcher 0 is the main searcher, whose
+ *  result the player uses.  The other (helper) searchers run the same
+ *  iterative deepening in parallel, starting at staggered depths and
+ *  trying root moves in a rotated order, so that they fill the shared
+ *  table with results the main searcher can use.
+ *  @author Ryan Van de Water
+ */
+class Searcher {
+
+    /** A magnitude greater than a normal value. */
+    private static final int INFTY = Integer.MAX_VALUE;
+
+    /** Maximum depth of the search tree, in plies. */
+    static final int MAX_PLY = 64;
+
+    /** Values of at least this magnitude indicate a won (or, if
+     *  negative, lost) position, their distance below
+     *  MachinePlayer.WINNING_VALUE being the number of plies from the
+     *  root to the end of the game. */
+    private static final int WIN_THRESHOLD =
+        MachinePlayer.WINNING_VALUE - MAX_PLY;
+
+    /** Result of probeTable when the table does not settle a node's
+     *  value. */
+    private static final int NO_CUTOFF = Integer.MIN_VALUE;
+
+    /** Number of nodes between readings of the clock and of the
+     *  player's stop request.  A power of 2. */
+    private static final int CLOCK_INTERVAL = 1024;
+
+    /** History scores are halved when one reaches this value. */
+    private static final int MAX_HISTORY = 1 << 24;
+    /** Divisor applied to history scores at the start of each search. */
+    private static final int HISTORY_AGING = 8;
+
+    /** Most plies searched by quiesce beyond the nominal depth. */
+    private static final int QUIESCENCE_DEPTH = 4;
+    /** Most regions a side's pieces may form for one of its quiet moves
+     *  to join them all: the moved piece may leave a region of its own
+     *  and touch at most four others where it lands. */
+    private static final int QUIET_WIN_REGIONS = 5;
+
+    /** Log base 2 of the number of entries in an evaluation cache. */
+    private static final int EVAL_CACHE_LOG_SIZE = 16;
+
+    /** Half the width of the initial aspiration window. */
+    private static final int ASPIRATION_WINDOW = 50;
+    /** Least search depth at which to use an aspiration window. */
+    private static final int MIN_ASPIRATION_DEPTH = 3;
+
+    /** Number of moves at each node searched at full depth before late
+     *  move reductions apply. */
+    private static final int LMR_FULL_MOVES = 3;
+    /** Least remaining depth at which to reduce late moves. */
+    private static final int LMR_MIN_DEPTH = 3;
+    /** Scale of the late move reductions: the reduction for the Kth
+     *  move at depth D is about ln(D) * ln(K) / LMR_DIVISOR. */
+    private static final double LMR_DIVISOR = 2.0;
+
+    /** REDUCTIONS[D][K] is the number of plies by which to reduce the
+     *  search of the Kth move (from 0) tried at a node with remaining
+     *  depth D, if it is a late move. */
+    private static final int[][] REDUCTIONS =
+        new int[MAX_PLY][Board.MAX_MOVES];
+
+    static {
+        for (int d = 1; d < MAX_PLY; d += 1) {
+            for (int k = 1; k < Board.MAX_MOVES; k += 1) {
+                int r = (int) (0.5 + Math.log(d) * Math.log(k) / LMR_DIVISOR);
+                REDUCTIONS[d][k] = Math.max(0, Math.min(r, d - 2));
+            }
+        }
+    }
+
+    /** Least remaining depth at which to try a null move. */
+    private static final int NULL_MIN_DEPTH = 2;
+    /** Depth reduction of the search after a null move, and the extra
+     *  reduction when more than NULL_DEEP plies remain. */
+    private static final int NULL_REDUCTION = 2, NULL_DEEP = 6;
+
+    /** FUTILITY_MARGINS[D] is the most by which a quiet move is assumed
+     *  to raise the static value of a position with remaining depth D
+     *  (for D < FUTILITY_MARGINS.length). */
+    private static final int[] FUTILITY_MARGINS = { 0, 150, 300 };
+
+    /** Odd multiplier that spreads packed moves over a random seed. */
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** Searcher number ID for PLAYER. */
+    Searcher(MachinePlayer player, int id) {
+        _player = player;
+        _id = id;
+        for (int p = 0; p < MAX_PLY; p += 1) {
+            _pickers[p] = new MovePicker();
+        }
+    }
+
+    /** Return the number of nodes visited by my last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return my evaluation cache, whose statistics cover my last
+     *  search. */
+    EvalCache evalCache() {
+        return _evalCache;
+    }
+
+    /** Return the number of beta cutoffs in my last search. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Return the number of beta cutoffs in my last search that were
+     *  caused by the first move tried. */
+    long firstCutoffs() {
+        return _firstCutoffs;
+    }
+
+    /** Return a move for the side to move in ROOT after searching it to
+     *  successively greater depths until the search is stopped, using
+     *  TABLE as the transposition table.  The search started at time
+     *  START (as from System.currentTimeMillis) and is allotted BUDGET
+     *  milliseconds, and seeds its random numbers with SEED.  Stops
+     *  early once a search proves a win or loss, since no deeper search
+     *  will change that.  Returns the best move (packed as by
+     *  Move.pack) found by the deepest completed search, or
+     *  Move.NO_MOVE if there are no legal moves.  Assumes the game is
+     *  not over. */
+    int search(Board root, TranspositionTable table, long start,
+               long budget, long seed) {
+        _board.copyFrom(root);
+        _table = table;
+        _random.setSeed(seed);
+        _nodes = _cutoffs = _firstCutoffs = 0;
+        _evalCache.resetStatistics();
+        _stopped = false;
+        _sense = root.turn() == WP ? 1 : -1;
+        clearOrdering(false);
+        chooseRootNoise(root);
+        int bestMove = Move.NO_MOVE, value = 0;
+        long lastNodes = 0, iterationNodes = 0;
+        for (int depth = 1 + (_id & 1); depth < MAX_PLY - QUIESCENCE_DEPTH;
+             depth += 1) {
+            _deadline = depth == 1 ? Long.MAX_VALUE : start + budget;
+            long nodes0 = _nodes;
+            value = aspirate(depth, value);
+            if (_stopped) {
+                break;
+            }
+            bestMove = _foundMove;
+            lastNodes = iterationNodes;
+            iterationNodes = _nodes - nodes0;
+            long elapsed = System.currentTimeMillis() - start;
+            if (_id == 0) {
+                double branching =
+                    lastNodes == 0 ? 0.0 : (double) iterationNodes / lastNodes;
+                debug(1, "depth %d: %s value %d (%d nodes, branching %.2f,"
+                      + " %d ms)", depth, Move.mv(bestMove), value,
+                      iterationNodes, branching, elapsed);
+            }
+            if (elapsed > budget / 2 || Math.abs(value) >= WIN_THRESHOLD) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /** Return the value, to the side to move in ROOT, of the position
+     *  after MOVE in ROOT, searched to DEPTH plies below ROOT with window
+     *  ALPHA..BETA and without a transposition table or time limit.  The
+     *  random numbers used are determined by SEED and MOVE, and the
+     *  move ordering starts afresh, so that the result does not depend
+     *  on what I searched before. */
+    int searchMove(Board root, int move, int depth, int alpha, int beta,
+                   long seed) {
+        _board.copyFrom(root);
+        _table = null;
+        _random.setSeed(seed ^ (move * SEED_MULTIPLIER));
+        _deadline = Long.MAX_VALUE;
+        _nodes = 0;
+        _stopped = false;
+        _sense = root.turn() == WP ? 1 : -1;
+        clearOrdering(true);
+        int noise = _player.noise() == 0 ? 0
+            : _random.nextInt(_player.noise() + 1);
+        _board.makeMove(move);
+        return addNoise(-negamax(_board, depth - 1, 1,
+                                 -addNoise(beta, -noise),
+                                 -addNoise(alpha, -noise)),
+                        noise);
+    }
+
+    /** Choose the random amounts to add to the values of the moves from
+     *  ROOT, between 0 and my player's noise limit.  These are the only
+     *  random element of the deterministic evaluation, and so that they
+     *  do not spoil the transposition table, they apply only at the
+     *  root. */
+    private void chooseRootNoise(Board root) {
+        Arrays.fill(_rootNoise, 0);
+        int limit = _player.noise();
+        if (limit > 0) {
+            int[] moves = _moveStack[0];
+            int n = root.generateMoves(moves, 0);
+            for (int i = 0; i < n; i += 1) {
+                _rootNoise[MovePicker.historyIndex(moves[i])] =
+                    _random.nextInt(limit + 1);
+            }
+        }
+    }
+
+    /** Return VALUE + NOISE, limited to the range -INFTY .. INFTY. */
+    private static int addNoise(int value, int noise) {
+        return (int) Math.max(-INFTY, Math.min(INFTY, (long) value + noise));
+    }
+
+    /** Count a node and return true iff the current search should be
+     *  abandoned because its time is up or my player has asked its
+     *  searchers to stop.  Checks only every CLOCK_INTERVAL nodes. */
+    private boolean timeUp() {
+        _nodes += 1;
+        if (!_stopped && (_nodes & (CLOCK_INTERVAL - 1)) == 0
+            && (_player.stopRequested()
+                || System.currentTimeMillis() > _deadline)) {
+            _stopped = true;
+        }
+        return _stopped;
+    }
+
+    /** Search _board to DEPTH plies with windows centered on GUESS, the
+     *  value of the previous iteration, widening the window and
+     *  searching again whenever the value falls outside it.  Returns
+     *  the value found, to the side to move, and records the best move
+     *  in _foundMove.  Shallow searches use the full window. */
+    private int aspirate(int depth, int guess) {
+        long delta = ASPIRATION_WINDOW;
+        int alpha = -INFTY, beta = INFTY;
+        if (depth >= MIN_ASPIRATION_DEPTH) {
+            alpha = (int) Math.max(-INFTY, guess - delta);
+            beta = (int) Math.min(INFTY, guess + delta);
+        }
+        while (true) {
+            _foundMove = Move.NO_MOVE;
+            int value = negamax(_board, depth, 0, alpha, beta);
+            if (_stopped) {
+                return value;
+            } else if (value <= alpha && alpha > -INFTY) {
+                delta *= 2;
+                alpha = (int) Math.max(-INFTY, value - delta);
+            } else if (value >= beta && beta < INFTY) {
+                delta *= 2;
+                beta = (int) Math.min(INFTY, value + delta);
+            } else {
+                return value;
+            }
+        }
+    }
+
+    /** Return the value of BOARD, at distance PLY from the root, to the
+     *  side to move, searching DEPTH plies ahead.  This is a fail-soft
+     *  principal variation search: the first move at each node is
+     *  searched with the window ALPHA..BETA and the rest with a null
+     *  window just above the best value so far, being searched again
+     *  with the full window only if they beat it.  Late quiet moves
+     *  (see reduction) are first searched to a reduced depth, and again
+     *  to the full depth only if they beat the best value.  A value
+     *  <= ALPHA is an upper bound on the true value, and one >= BETA a
+     *  lower bound.  At the root, records the best move in
+     *  _foundMove.
+     *
+     *  Away from the root, when the static value is at least BETA, a
+     *  null move (a pass) is searched to reduced depth first, and if
+     *  the side to move still reaches BETA, so does the node.  Near the
+     *  leaves, when even the static value plus a margin cannot reach
+     *  ALPHA, quiet moves that do not end the game are skipped.  Either
+     *  pruning may be disabled (see MachinePlayer.setPruning).  A side
+     *  with no legal moves loses.  The root's value, which includes
+     *  the root noise, is not stored in the transposition table when
+     *  there is any. */
+    private int negamax(Board board, int depth, int ply,
+                        int alpha, int beta) {
+        if (depth == 0 || board.gameOver()) {
+            return quiesce(board, ply, QUIESCENCE_DEPTH, alpha, beta);
+        } else if (timeUp()) {
+            return 0;
+        }
+        long entry = _table == null ? 0 : _table.probe(board.hashKey());
+        int cutoff = tableCutoff(entry, depth, ply, alpha, beta);
+        if (cutoff != NO_CUTOFF) {
+            return cutoff;
+        }
+        boolean nullMove = _player.nullMovePruning() && ply > 0
+            && depth >= NULL_MIN_DEPTH && !_nullMoves[ply - 1]
+            && Math.abs(beta) < WIN_THRESHOLD;
+        boolean futility = _player.futilityPruning() && ply > 0
+            && depth < FUTILITY_MARGINS.length
+            && Math.abs(alpha) < WIN_THRESHOLD;
+        int staticValue = nullMove || futility
+            ? (board.turn() == WP ? 1 : -1) * evaluate(board) : 0;
+        if (nullMove && staticValue >= beta) {
+            int r = NULL_REDUCTION + (depth > NULL_DEEP ? 1 : 0);
+            _nullMoves[ply] = true;
+            board.makeNullMove();
+            int value = -negamax(board, Math.max(0, depth - 1 - r), ply + 1,
+                                 -beta, -beta + 1);
+            board.retractNullMove();
+            _nullMoves[ply] = false;
+            if (_stopped) {
+                return 0;
+            } else if (value >= beta) {
+                return Math.min(value, WIN_THRESHOLD - 1);
+            }
+        }
+        int futilityValue = staticValue + FUTILITY_MARGINS[
+            Math.min(depth, FUTILITY_MARGINS.length - 1)];
+        futility = futility && futilityValue <= alpha;
+        int bestValue = -INFTY, alpha0 = alpha, best = Move.NO_MOVE;
+        MovePicker picker = _pickers[ply];
+        picker.start(board, TranspositionTable.move(entry),
+                     _killers[ply][0], _killers[ply][1], _history);
+        if (ply == 0 && _id > 0) {
+            picker.rotate(_id);
+        }
+        int i = 0;
+        for (int move = picker.next(); move != Move.NO_MOVE;
+             move = picker.next(), i += 1) {
+            int noise =
+                ply == 0 ? _rootNoise[MovePicker.historyIndex(move)] : 0;
+            int a = addNoise(alpha, -noise), b = addNoise(beta, -noise);
+            board.makeMove(move);
+            if (futility && i > 0 && !Move.isCapture(move)
+                && !board.gameOver()) {
+                board.retract();
+                bestValue = Math.max(bestValue, futilityValue);
+                continue;
+            }
+            int value;
+            if (i == 0) {
+                value = -negamax(board, depth - 1, ply + 1, -b, -a);
+            } else {
+                int r = reduction(move, depth, ply, i);
+                value = -negamax(board, depth - 1 - r, ply + 1, -a - 1, -a);
+                if (r > 0 && value > a) {
+                    value = -negamax(board, depth - 1, ply + 1, -a - 1, -a);
+                }
+                if (value > a && value < b) {
+                    value = -negamax(board, depth - 1, ply + 1, -b, -a);
+                }
+            }
+            value = addNoise(value, noise);
+            board.retract();
+            if (value > bestValue) {
+                bestValue = value;
+                best = move;
+                if (ply == 0) {
+                    _foundMove = move;
+                }
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        recordCutoff(move, depth, ply, i);
+                        break;
+                    }
+                }
+            }
+        }
+        if (bestValue == -INFTY) {
+            bestValue = ply - MachinePlayer.WINNING_VALUE;
+        }
+        if (!_stopped && (ply > 0 || _player.noise() == 0)) {
+            storeTable(board, depth, ply, alpha0, beta, bestValue, best);
+        }
+        return bestValue;
+    }
+
+    /** Return the number of plies by which to reduce the search of
+     *  MOVE, the Kth move tried at distance PLY from the root in a
+     *  search to DEPTH.  Only late moves are reduced: quiet moves other
+     *  than the killers, tried after the first LMR_FULL_MOVES moves,
+     *  away from the root and the leaves. */
+    private int reduction(int move, int depth, int ply, int k) {
+        if (ply == 0 || depth < LMR_MIN_DEPTH || k < LMR_FULL_MOVES
+            || Move.isCapture(move) || move == _killers[ply][0]
+            || move == _killers[ply][1]) {
+            return 0;
+        }
+        return REDUCTIONS[Math.min(depth, MAX_PLY - 1)][k];
+    }
+
+    /** Note that MOVE, the Kth move tried at distance PLY from the root
+     *  in a search to DEPTH, caused a beta cutoff.  Unless it is a
+     *  capture (which is tried early anyway), it becomes a killer move
+     *  for PLY, and its history score increases. */
+    private void recordCutoff(int move, int depth, int ply, int k) {
+        _cutoffs += 1;
+        if (k == 0) {
+            _firstCutoffs += 1;
+        }
+        if (Move.isCapture(move)) {
+            return;
+        }
+        int[] killers = _killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        int h = MovePicker.historyIndex(move);
+        _history[h] += depth * depth;
+        if (_history[h] >= MAX_HISTORY) {
+            for (int i = 0; i < _history.length; i += 1) {
+                _history[i] /= 2;
+            }
+        }
+    }
+
+    /** Forget the killer moves, at the start of a new search, and age
+     *  the history scores, or forget them too if FORGET. */
+    private void clearOrdering(boolean forget) {
+        for (int[] killers : _killers) {
+            killers[0] = killers[1] = Move.NO_MOVE;
+        }
+        if (forget) {
+            Arrays.fill(_history, 0);
+        } else {
+            for (int i = 0; i < _history.length; i += 1) {
+                _history[i] /= HISTORY_AGING;
+            }
+        }
+    }
+
+    /** Given ENTRY, the transposition-table entry (or 0) for a position
+     *  at distance PLY from the root, return its recorded value if it
+     *  was searched to at least DEPTH with a result that is exact or
+     *  falls outside the window ALPHA..BETA; otherwise, return
+     *  NO_CUTOFF.  Never cuts off at the root, where a move must be
+     *  found.  The table holds the distances of wins and losses from
+     *  the positions themselves (see storeTable); the value returned
+     *  measures them from the root. */
+    private int tableCutoff(long entry, int depth, int ply,
+                            int alpha, int beta) {
+        if (ply == 0 || entry == 0
+            || TranspositionTable.depth(entry) < depth) {
+            return NO_CUTOFF;
+        }
+        int score = TranspositionTable.score(entry);
+        if (score >= WIN_THRESHOLD) {
+            score -= ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            score += ply;
+        }
+        switch (TranspositionTable.bound(entry)) {
+        case TranspositionTable.EXACT:
+            return score;
+        case TranspositionTable.LOWER:
+            return score >= beta ? score : NO_CUTOFF;
+        default:
+            return score <= alpha ? score : NO_CUTOFF;
+        }
+    }
+
+    /** Record in the transposition table that BOARD, at distance PLY
+     *  from the root and searched to DEPTH with window ALPHA..BETA, has
+     *  value VALUE and best move BEST.  The distance of a win or loss
+     *  is stored as measured from BOARD rather than from the root, so
+     *  that the entry is valid wherever BOARD recurs. */
+    private void storeTable(Board board, int depth, int ply, int alpha,
+                            int beta, int value, int best) {
+        int bound = value <= alpha ? TranspositionTable.UPPER
+            : value >= beta ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+        if (value >= WIN_THRESHOLD) {
+            value += ply;
+        } else if (value <= -WIN_THRESHOLD) {
+            value -= ply;
+        }
+        if (_table != null) {
+            _table.store(board.hashKey(), depth, bound, value, best);
+        }
+    }
+
+    /** Return the value of BOARD, positive if it favors white, taking
+     *  it from my evaluation cache when possible.  Random evaluations
+     *  are not cached. */
+    private int evaluate(Board board) {
+        if (_player.randomEvaluation()) {
+            return _player.heuristicFunction(board, _sense, _random);
+        }
+        long key = board.hashKey();
+        if (_evalCache.probe(key)) {
+            return _evalCache.value();
+        }
+        int value = _player.evaluate(board);
+        _evalCache.store(key, value);
+        return value;
+    }
+
+    /** Return the value of BOARD, at distance PLY from the root, to the
+     *  side to move, searching only moves that might change its static
+     *  value abruptly, to at most DEPTH more plies: captures, which can
+     *  split or join groups, and moves that join all the mover's pieces
+     *  and so win outright.  The side to move may instead "stand pat"
+     *  on BOARD's static value, so the result is never less than that,
+     *  and the search stops as soon as the value reaches BETA.  As for
+     *  negamax, a value <= ALPHA is only an upper bound.  A finished
+     *  game is worth WINNING_VALUE less PLY to the winner. */
+    private int quiesce(Board board, int ply, int depth,
+                        int alpha, int beta) {
+        Piece side = board.turn();
+        if (board.gameOver()) {
+            timeUp();
+            Piece winner = board.winner();
+            return winner == side ? MachinePlayer.WINNING_VALUE - ply
+                : winner == EMP ? 0 : ply - MachinePlayer.WINNING_VALUE;
+        }
+        int colour = side == WP ? 1 : -1;
+        int bestValue = colour * evaluate(board);
+        if (timeUp() || bestValue >= beta
+            || depth == 0 || ply == MAX_PLY - 1) {
+            return bestValue;
+        }
+        alpha = Math.max(alpha, bestValue);
+        int[] moves = _moveStack[ply];
+        int captures = board.generateCaptures(moves, 0);
+        int n = board.regionCount(side) > QUIET_WIN_REGIONS ? captures
+            : board.generateQuiets(moves, captures);
+        for (int i = 0; i < n; i += 1) {
+            if (i >= captures && !board.quietMoveJoins(moves[i])) {
+                continue;
+            }
+            board.makeMove(moves[i]);
+            int value = -quiesce(board, ply + 1, depth - 1, -beta, -alpha);
+            board.retract();
+            if (value > bestValue) {
+                bestValue = value;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestValue;
+    }
+
+    /** The player on whose behalf I search. */
+    private final MachinePlayer _player;
+    /** My number among my player's searchers; 0 for the main one. */
+    private final int _id;
+    /** My copy of the position being searched. */
+    private final Board _board = new Board();
+    /** The transposition table shared with the other searchers, or null
+     *  if none. */
+    private TranspositionTable _table;
+    /** Values of recently evaluated positions. */
+    private final EvalCache _evalCache = new EvalCache(EVAL_CACHE_LOG_SIZE);
+    /** Source of the random component of my evaluations. */
+    private final Random _random = new Random();
+    /** Time (as from System.currentTimeMillis) by which the current
+     *  search must stop. */
+    private long _deadline;
+    /** True iff the current search has been abandoned. */
+    private boolean _stopped;
+    /** Number of nodes visited in the current search. */
+    private long _nodes;
+    /** Numbers of beta cutoffs in the current search, in all and on the
+     *  first move tried. */
+    private long _cutoffs, _firstCutoffs;
+    /** The best move found at the root by the last search, packed as by
+     *  Move.pack. */
+    private int _foundMove;
+    /** 1 if the side to move at the root is white, else -1.  The
+     *  evaluation function's terms depend on it. */
+    private int _sense;
+    /** _moveStack[P] holds the moves generated at ply P of the current
+     *  search by quiesce, so that searching allocates no move lists. */
+    private final int[][] _moveStack = new int[MAX_PLY][Board.MAX_MOVES];
+    /** _rootNoise[MovePicker.historyIndex(M)] is the random amount added
+     *  to the value of root move M. */
+    private final int[] _rootNoise = new int[NUM_SQUARES * NUM_SQUARES];
+    /** _nullMoves[P] is true iff the move being searched at ply P is a
+     *  null move. */
+    private final boolean[] _nullMoves = new boolean[MAX_PLY];
+    /** _pickers[P] supplies the moves to search at ply P. */
+    private final MovePicker[] _pickers = new MovePicker[MAX_PLY];
+    /** _killers[P] holds the two most recent quiet moves that caused
+     *  cutoffs at ply P, most recent first. */
+    private final int[][] _killers = new int[MAX_PLY][2];
+    /** History scores: _history[historyIndex(M)] increases with each
+     *  cutoff caused by quiet move M, weighted toward deep searches. */
+    private final int[] _history = new int[NUM_SQUARES * NUM_SQUARES];
+}
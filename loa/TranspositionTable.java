@@ -0,0 +1,149 @@
+/* Skeleton Copyright (C) 2015, 2020 Paul N. Hilfinger and the Regents of the
+ * University of California.  All rights reserved. */
+package loa;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by position hash key
+ *  (see Board.hashKey).  Each entry records the depth to which a
+ *  position was searched, a score together with whether it is exact or
+ *  only a lower or upper bound, and the best move found.  The table
+ *  is a pair of primitive arrays whose length is a power of two, so
+ *  that it allocates nothing after construction.  When two positions
+ *  map to the same slot, the one searched more deeply (or, failing
+ *  that, the more recently searched) is kept.
+ *
+ *  The table may be shared by several searching threads without
+ *  locking.  Each slot stores its key XORed with its data, so that a
+ *  slot torn by two simultaneous stores (one thread's key paired with
+ *  another's data) fails to match either key on probe and reads as
+ *  empty.  Racing stores may lose an entry, which costs only search
+ *  effort.
+ *  @author Ryan Van de Water
+ */
+class TranspositionTable {
+
+    /** Bound type of an entry whose score is exact. */
+    static final int EXACT = 1;
+    /** Bound type of an entry whose score is a lower bound (the search
+     *  failed high). */
+    static final int LOWER = 2;
+    /** Bound type of an entry whose score is an upper bound (the search
+     *  failed low). */
+    static final int UPPER = 3;
+
+    /** Number of bytes occupied by one entry. */
+    static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** A table occupying at most BYTES bytes (and at least one entry). */
+    TranspositionTable(long bytes) {
+        long entries = Long.highestOneBit(Math.max(1, bytes / ENTRY_BYTES));
+        entries = Math.min(entries, 1 << MAX_LOG_SIZE);
+        _keys = new long[(int) entries];
+        _data = new long[(int) entries];
+        _mask = (int) entries - 1;
+    }
+
+    /** Return the number of entries in this table. */
+    int size() {
+        return _keys.length;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_data, 0);
+    }
+
+    /** Note the start of a new search, so that entries from earlier
+     *  searches are replaced in preference to current ones. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Return the entry for the position with hash KEY, or 0 if there is
+     *  none.  Decode the result with score, depth, bound, and move. */
+    long probe(long key) {
+        int k = (int) key & _mask;
+        long data = _data[k];
+        return (_keys[k] ^ data) == key ? data : 0;
+    }
+
+    /** Record that the position with hash KEY was searched to DEPTH,
+     *  yielding SCORE, which is a bound of type BOUND (EXACT, LOWER, or
+     *  UPPER), with best move MOVE (packed as by Move.pack, or
+     *  Move.NO_MOVE). */
+    void store(long key, int depth, int bound, int score, int move) {
+        int k = (int) key & _mask;
+        long old = _data[k];
+        boolean same = (_keys[k] ^ old) == key;
+        if (old != 0 && !same && depth(old) > depth
+            && generation(old) == _generation) {
+            return;
+        }
+        if (move == Move.NO_MOVE && same) {
+            move = move(old);
+        }
+        long data = (score & SCORE_MASK)
+            | ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) (move + 1) << MOVE_SHIFT)
+            | ((long) _generation << GENERATION_SHIFT);
+        _keys[k] = key ^ data;
+        _data[k] = data;
+    }
+
+    /** Return the score recorded in ENTRY. */
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    /** Return the depth recorded in ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound type (EXACT, LOWER, or UPPER) of ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the best move recorded in ENTRY, packed as by Move.pack,
+     *  or Move.NO_MOVE if none. */
+    static int move(long entry) {
+        return ((int) (entry >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+    }
+
+    /** Return the search generation in which ENTRY was stored. */
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /* Layout of an entry: bits 0-31 hold the score, 32-39 the depth,
+     * 40-41 the bound type (0 for an empty slot), 42-55 one more than the
+     * packed best move, and 56-63 the search generation. */
+
+    /** Mask for the score field. */
+    private static final long SCORE_MASK = 0xffffffffL;
+    /** Position and mask of the depth field. */
+    private static final int DEPTH_SHIFT = 32, DEPTH_MASK = 0xff;
+    /** Position and mask of the bound field. */
+    private static final int BOUND_SHIFT = 40, BOUND_MASK = 0x3;
+    /** Position and mask of the move field. */
+    private static final int MOVE_SHIFT = 42, MOVE_MASK = 0x3fff;
+    /** Position and mask of the generation field. */
+    private static final int GENERATION_SHIFT = 56, GENERATION_MASK = 0xff;
+
+    /** Log base 2 of the largest number of entries. */
+    private static final int MAX_LOG_SIZE = 30;
+
+    /** Hash keys of the stored positions, each XORed with the
+     *  corresponding element of _data. */
+    private final long[] _keys;
+    /** Encoded entries corresponding to _keys. */
+    private final long[] _data;
+    /** Mask selecting a slot from a hash key. */
+    private final int _mask;
+    /** The current search generation. */
+    private volatile int _generation;
+}
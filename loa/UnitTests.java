@@ -15,6 +15,7 @@ public class UnitTests {
     public static void main(String[] ignored) {
         textui.runClasses(UnitTests.class);
         textui.runClasses(BoardTest.class);
+        textui.runClasses(SearchTest.class);
     }
 
     /** A dummy test to avoid complaint. */